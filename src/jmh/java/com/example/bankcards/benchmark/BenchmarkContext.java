@@ -0,0 +1,37 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+final class BenchmarkContext {
+
+    static final String JWT_SECRET = "benchmark-jwt-secret-key-that-is-long-enough-for-hs256";
+    static final String CRYPTO_SECRET = "BenchSecretKey16";
+    static final String BLIND_INDEX_SECRET = "benchmark-blind-index-secret";
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        String[] args = {
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--app.jwt.secret=" + JWT_SECRET,
+                "--app.crypto.secret=" + CRYPTO_SECRET,
+                "--app.crypto.blind-index-secret=" + BLIND_INDEX_SECRET,
+                "--app.crypto.reencryption.enabled=false"
+        };
+        return new SpringApplicationBuilder(BankCardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Stream.concat(Arrays.stream(args), Arrays.stream(extraArgs)).toArray(String[]::new));
+    }
+}
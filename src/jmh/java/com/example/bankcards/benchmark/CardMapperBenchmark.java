@@ -0,0 +1,76 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
+import com.example.bankcards.util.CardMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardMapperBenchmark {
+
+    @Param({"20"})
+    private int pageSize;
+
+    private CardMapper cardMapper;
+    private Card card;
+    private Page<CardView> cardPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cardMapper = new CardMapper();
+
+        User owner = new User();
+        owner.setId(1L);
+        owner.setUsername("benchmark-user");
+
+        List<CardView> cards = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            cards.add(toView(newCard((long) i + 1, owner)));
+        }
+        card = newCard(1L, owner);
+        cardPage = new PageImpl<>(cards, PageRequest.of(0, pageSize), pageSize * 10L);
+    }
+
+    @Benchmark
+    public CardResponseDto toDto() {
+        return cardMapper.toDto(card);
+    }
+
+    @Benchmark
+    public Page<CardResponseDto> toDtoPage() {
+        return cardMapper.toDtoPage(cardPage);
+    }
+
+    private static CardView toView(Card card) {
+        return new CardView(card.getId(), card.getCardNumber(), card.getExpiryDate(), card.getStatus(),
+                card.getBalance(), card.getUser().getId(), card.getUser().getUsername());
+    }
+
+    private static Card newCard(Long id, User owner) {
+        Card card = new Card();
+        card.setId(id);
+        card.setCardNumber(String.format("4000%012d", id));
+        card.setExpiryDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("1250.5000"));
+        card.setUser(owner);
+        return card;
+    }
+}
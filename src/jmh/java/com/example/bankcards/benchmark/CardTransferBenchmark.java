@@ -0,0 +1,81 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.CreateCardRequestDto;
+import com.example.bankcards.dto.CreateUserRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardTransferBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private CardTransferRequestDto forward;
+    private CardTransferRequestDto backward;
+    private boolean reverse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        cardService = context.getBean(CardService.class);
+
+        CreateUserRequestDto userRequest = new CreateUserRequestDto();
+        userRequest.setUsername(USERNAME);
+        userRequest.setPassword("benchmark-password");
+        User user = context.getBean(UserService.class).createUser(userRequest);
+
+        Card first = createFundedCard(user, "4000000000000001");
+        Card second = createFundedCard(user, "4000000000000002");
+
+        forward = transfer(first.getId(), second.getId());
+        backward = transfer(second.getId(), first.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transferBetweenCards() {
+        cardService.transferBetweenCards(reverse ? backward : forward, USERNAME);
+        reverse = !reverse;
+    }
+
+    private Card createFundedCard(User user, String cardNumber) {
+        CreateCardRequestDto request = new CreateCardRequestDto();
+        request.setCardNumber(cardNumber);
+        request.setExpiryDate(LocalDate.now().plusYears(3));
+        request.setUserId(user.getId());
+
+        Card card = cardService.createCard(request);
+        context.getBean(JdbcTemplate.class)
+                .update("UPDATE cards SET balance = ? WHERE id = ?", new BigDecimal("1000000.00"), card.getId());
+        return card;
+    }
+
+    private static CardTransferRequestDto transfer(Long fromCardId, Long toCardId) {
+        CardTransferRequestDto request = new CardTransferRequestDto();
+        request.setFromCardId(fromCardId);
+        request.setToCardId(toCardId);
+        request.setAmount(BigDecimal.ONE);
+        return request;
+    }
+}
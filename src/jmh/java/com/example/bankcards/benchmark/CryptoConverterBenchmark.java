@@ -0,0 +1,49 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.util.CryptoConverter;
+import com.example.bankcards.util.CryptoEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoConverterBenchmark {
+
+    private CryptoEngine cryptoEngine;
+    private CryptoConverter converter;
+    private String cardNumber;
+    private String encryptedCardNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CryptoProperties properties = new CryptoProperties();
+        properties.setSecret(BenchmarkContext.CRYPTO_SECRET);
+        properties.setBlindIndexSecret(BenchmarkContext.BLIND_INDEX_SECRET);
+        cryptoEngine = new CryptoEngine(properties);
+        converter = new CryptoConverter();
+        converter.setCryptoEngine(cryptoEngine);
+        cardNumber = "4000123412341234";
+        encryptedCardNumber = converter.convertToDatabaseColumn(cardNumber);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return converter.convertToDatabaseColumn(cardNumber);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return converter.convertToEntityAttribute(encryptedCardNumber);
+    }
+
+    @Benchmark
+    public String blindIndex() {
+        return cryptoEngine.blindIndex(cardNumber);
+    }
+}
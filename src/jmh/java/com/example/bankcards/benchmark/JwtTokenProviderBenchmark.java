@@ -0,0 +1,48 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final long EXPIRATION_MS = 3_600_000;
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider verifyingProvider;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cachingProvider = new JwtTokenProvider(BenchmarkContext.JWT_SECRET, EXPIRATION_MS, 10_000, 60_000);
+        verifyingProvider = new JwtTokenProvider(BenchmarkContext.JWT_SECRET, EXPIRATION_MS, 0, 60_000);
+        token = cachingProvider.generateToken(new UsernamePasswordAuthenticationToken(
+                "benchmark-user", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Benchmark
+    public Claims parseClaimsCached() {
+        return parse(cachingProvider);
+    }
+
+    @Benchmark
+    public Claims parseClaimsVerified() {
+        return parse(verifyingProvider);
+    }
+
+    private Claims parse(JwtTokenProvider provider) {
+        return provider.parseClaims(token)
+                .orElseThrow(() -> new IllegalStateException("Benchmark token is not valid"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.ConnectionLimitingDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One operation is a wave of {@code clients} concurrent requests; requests per second = clients / score.
+ * A request waits {@code BLOCKING_MS} outside the database (reading the request, calling another service)
+ * and then runs one query. "platform" uses a fixed pool of Tomcat's default 200 threads; "virtual" uses a
+ * virtual thread per request with connections limited to the pool size by {@link ConnectionLimitingDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RequestThreadingBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int POOL_SIZE = 10;
+    private static final long BLOCKING_MS = 10;
+
+    @Param({"1000", "5000", "10000"})
+    public int clients;
+
+    @Param({"platform", "virtual"})
+    public String threading;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ExecutorService platformExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE);
+        DataSource dataSource = context.getBean(DataSource.class);
+        if (threading.equals("virtual")) {
+            dataSource = new ConnectionLimitingDataSource(dataSource, POOL_SIZE, 30_000);
+        } else {
+            platformExecutor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (platformExecutor != null) {
+            platformExecutor.shutdownNow();
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public int requestWave() throws Exception {
+        if (platformExecutor != null) {
+            return runWave(platformExecutor);
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return runWave(executor);
+        }
+    }
+
+    private int runWave(ExecutorService executor) throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            responses.add(executor.submit(this::handleRequest));
+        }
+        int total = 0;
+        for (Future<Integer> response : responses) {
+            total += response.get();
+        }
+        return total;
+    }
+
+    private Integer handleRequest() throws InterruptedException {
+        Thread.sleep(BLOCKING_MS);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching(proxyTargetClass = true)
+public class CacheConfig {
+
+    public static final String USER_DETAILS_CACHE = "userDetails";
+    public static final String CARD_PAGES_CACHE = "cardPages";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${app.security.user-details-cache.max-size:10000}") long maxSize,
+                                     @Value("${app.security.user-details-cache.ttl-ms:300000}") long ttlMs,
+                                     @Value("${app.cards.list-cache.max-size:10000}") long cardPagesMaxSize,
+                                     @Value("${app.cards.list-cache.ttl-ms:30000}") long cardPagesTtlMs) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USER_DETAILS_CACHE);
+        // recordStats feeds the cache.gets{result=hit|miss} metrics bound by Actuator.
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        // Pages of superseded card set versions are never read again; the TTL just frees them sooner.
+        cacheManager.registerCustomCache(CARD_PAGES_CACHE, Caffeine.newBuilder()
+                .maximumSize(cardPagesMaxSize)
+                .expireAfterWrite(Duration.ofMillis(cardPagesTtlMs))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.crypto")
+public class CryptoProperties {
+
+    /**
+     * Original single encryption key. Used as key version 1 unless {@link #keys} defines that version.
+     */
+    private String secret;
+
+    private String blindIndexSecret;
+
+    private Map<Integer, String> keys = new HashMap<>();
+
+    /**
+     * Version used for new ciphertexts. Defaults to the highest configured version.
+     */
+    private Integer activeKeyVersion;
+
+    private final Reencryption reencryption = new Reencryption();
+
+    public String getSecret() { return secret; }
+    public void setSecret(String secret) { this.secret = secret; }
+    public String getBlindIndexSecret() { return blindIndexSecret; }
+    public void setBlindIndexSecret(String blindIndexSecret) { this.blindIndexSecret = blindIndexSecret; }
+    public Map<Integer, String> getKeys() { return keys; }
+    public void setKeys(Map<Integer, String> keys) { this.keys = keys; }
+    public Integer getActiveKeyVersion() { return activeKeyVersion; }
+    public void setActiveKeyVersion(Integer activeKeyVersion) { this.activeKeyVersion = activeKeyVersion; }
+    public Reencryption getReencryption() { return reencryption; }
+
+    public static class Reencryption {
+
+        private boolean enabled = true;
+        private int batchSize = 500;
+        private long pauseMs = 200;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public long getPauseMs() { return pauseMs; }
+        public void setPauseMs(long pauseMs) { this.pauseMs = pauseMs; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for roles and user-role sets, backed by Caffeine through JCache.
+ * Every region is created here with a size bound; an unknown region fails startup instead of growing unbounded.
+ * The cache manager comes from a provider owned by this context, so contexts in one JVM never share entries.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String ROLES_REGION = "roles";
+    public static final String USER_ROLES_REGION = "userRoles";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${app.hibernate-cache.max-size:10000}") long maxSize,
+                                              @Value("${app.hibernate-cache.ttl-ms:3600000}") long ttlMs) {
+        CachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        cacheManager.createCache(ROLES_REGION, region(maxSize, ttlMs));
+        cacheManager.createCache(USER_ROLES_REGION, region(maxSize, ttlMs));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(maxSize, ttlMs));
+        // Timestamps decide whether cached query results are stale, so they must outlive the results and never expire.
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>().setStoreByValue(false));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlMs) {
+        // Hibernate stores immutable disassembled state, so entries need no copy-on-read.
+        return new CaffeineConfiguration<>()
+                .setStoreByValue(false)
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setExpireAfterWrite(OptionalLong.of(Duration.ofMillis(ttlMs).toNanos()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on tracked keys; the least recently used are dropped first.
+     */
+    private long maxKeys = 100_000;
+
+    /**
+     * Keys unused for this long are dropped. Should exceed the time any bucket takes to refill.
+     */
+    private long idleTtlMs = 600_000;
+
+    /**
+     * Limits by route name. Routes without an entry are not limited.
+     */
+    private Map<String, Limit> routes = new HashMap<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public long getMaxKeys() { return maxKeys; }
+    public void setMaxKeys(long maxKeys) { this.maxKeys = maxKeys; }
+    public long getIdleTtlMs() { return idleTtlMs; }
+    public void setIdleTtlMs(long idleTtlMs) { this.idleTtlMs = idleTtlMs; }
+    public Map<String, Limit> getRoutes() { return routes; }
+    public void setRoutes(Map<String, Limit> routes) { this.routes = routes; }
+
+    public static class Limit {
+
+        /**
+         * Requests a key may make at once after being idle.
+         */
+        private int capacity = 10;
+
+        /**
+         * Sustained requests per second once the burst is used up.
+         */
+        private double refillPerSecond = 1;
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+        public double getRefillPerSecond() { return refillPerSecond; }
+        public void setRefillPerSecond(double refillPerSecond) { this.refillPerSecond = refillPerSecond; }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.service.CardsChangedEvent;
+import com.example.bankcards.service.UserChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Pins the users whose cards or account changed to the primary once the change is committed, including changes
+ * made by an admin, by an anonymous registration or on a transfer worker thread. Runs before the listeners that
+ * drop cached card lists and versions, so the reload after eviction already goes to the primary.
+ */
+public class ReadReplicaPinListener {
+
+    private final ReadReplicaRoutingDataSource routingDataSource;
+
+    public ReadReplicaPinListener(ReadReplicaRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardsChanged(CardsChangedEvent event) {
+        routingDataSource.pinUsers(event.userIds());
+    }
+
+    // The username covers logins, which load the user before anyone is authenticated.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        routingDataSource.pinUsers(List.of(event.userId()));
+        routingDataSource.pinUsername(event.username());
+    }
+}
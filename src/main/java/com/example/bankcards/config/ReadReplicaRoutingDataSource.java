@@ -0,0 +1,119 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections everywhere else.
+ * A user whose data has just changed is pinned to the primary for {@code pinAfterWrite}, so they read their own
+ * writes while the replica catches up. Users are pinned by {@link ReadReplicaPinListener} when their cards or
+ * account change, whoever made the change, and the user who committed a read-write transaction is pinned too.
+ * Pins live in this instance's memory only, so they hold across instances only with sticky sessions.
+ * <p>
+ * The routing decision reads the transaction's read-only flag, which is only set after the transaction
+ * manager has asked for a connection, so this must sit behind a {@code LazyConnectionDataSourceProxy}.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<String> READING_USERNAME = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Supplier<Long> currentUserId;
+    private final Cache<Long, Boolean> pinnedUserIds;
+    private final Cache<String, Boolean> pinnedUsernames;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, Supplier<Long> currentUserId,
+                                        Duration pinAfterWrite, long maxPinnedUsers) {
+        this.primary = primary;
+        this.replica = replica;
+        this.currentUserId = currentUserId;
+        this.pinnedUserIds = Caffeine.newBuilder()
+                .maximumSize(maxPinnedUsers)
+                .expireAfterWrite(pinAfterWrite)
+                .build();
+        this.pinnedUsernames = Caffeine.newBuilder()
+                .maximumSize(maxPinnedUsers)
+                .expireAfterWrite(pinAfterWrite)
+                .build();
+    }
+
+    /**
+     * Runs {@code read} on behalf of {@code username} for requests that are not authenticated yet, such as a
+     * login loading the user, so it is routed like that user's own reads.
+     */
+    public static <T> T readingUser(String username, Supplier<T> read) {
+        String previous = READING_USERNAME.get();
+        READING_USERNAME.set(username);
+        try {
+            return read.get();
+        } finally {
+            if (previous != null) {
+                READING_USERNAME.set(previous);
+            } else {
+                READING_USERNAME.remove();
+            }
+        }
+    }
+
+    public void pinUsers(Collection<Long> userIds) {
+        userIds.forEach(userId -> pinnedUserIds.put(userId, Boolean.TRUE));
+    }
+
+    public void pinUsername(String username) {
+        pinnedUsernames.put(username, Boolean.TRUE);
+    }
+
+    /**
+     * Whether read-only transactions of the current user go to the primary.
+     */
+    public boolean isCurrentUserPinned() {
+        Long userId = currentUserId.get();
+        if (userId != null && pinnedUserIds.getIfPresent(userId) != null) {
+            return true;
+        }
+        String username = READING_USERNAME.get();
+        return username != null && pinnedUsernames.getIfPresent(username) != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    private DataSource route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinAfterCommit(currentUserId.get());
+            return primary;
+        }
+        return isCurrentUserPinned() ? primary : replica;
+    }
+
+    // Only committed transactions count as writes; connections taken outside a transaction do not pin.
+    private void pinAfterCommit(Long userId) {
+        if (userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pinnedUserIds.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+}
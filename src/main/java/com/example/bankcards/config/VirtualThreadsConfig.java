@@ -0,0 +1,36 @@
+package com.example.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Active with {@code spring.threads.virtual.enabled=true}, which also moves Tomcat requests, {@code @Async}
+ * and {@code @Scheduled} work onto virtual threads. Concurrent connection checkouts are capped at the Hikari
+ * pool size (or {@code app.datasource.max-concurrent-connections}) by a semaphore in front of the pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                int permits = environment.getProperty("app.datasource.max-concurrent-connections", Integer.class,
+                        hikari.getMaximumPoolSize());
+                return new ConnectionLimitingDataSource((DataSource) bean, permits, hikari.getConnectionTimeout());
+            }
+        };
+    }
+}
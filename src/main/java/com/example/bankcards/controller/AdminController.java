@@ -1,13 +1,21 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CardCursorPageDto;
+import com.example.bankcards.dto.CardFileFormat;
+import com.example.bankcards.dto.CardImportResultDto;
 import com.example.bankcards.dto.CardResponseDto;
 import com.example.bankcards.dto.CreateCardRequestDto;
+import com.example.bankcards.dto.UpdateBalanceStripesRequestDto;
 import com.example.bankcards.dto.UpdateCardStatusRequestDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardImportService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardSetVersionService;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.CardMapper;
 import com.example.bankcards.util.UserMapper;
@@ -18,9 +26,19 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/v1/admin")
@@ -31,12 +49,20 @@ public class AdminController {
     private final CardMapper cardMapper;
     private final UserService userService;
     private final UserMapper userMapper;
+    private final CardExportService cardExportService;
+    private final CardImportService cardImportService;
+    private final CardSetVersionService cardSetVersionService;
 
-    public AdminController(CardService cardService, CardMapper cardMapper, UserService userService, UserMapper userMapper) {
+    public AdminController(CardService cardService, CardMapper cardMapper, UserService userService, UserMapper userMapper,
+                           CardExportService cardExportService, CardImportService cardImportService,
+                           CardSetVersionService cardSetVersionService) {
         this.cardService = cardService;
         this.cardMapper = cardMapper;
         this.userService = userService;
         this.userMapper = userMapper;
+        this.cardExportService = cardExportService;
+        this.cardImportService = cardImportService;
+        this.cardSetVersionService = cardSetVersionService;
     }
 
     @Operation(summary = "Create a new bank card", description = "Creates a new bank card for a specified user.")
@@ -55,6 +81,23 @@ public class AdminController {
         return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
     }
 
+    @Operation(summary = "Import cards in bulk", description = "Issues cards from a CSV file (header cardNumber,expiryDate,userId) "
+            + "or NDJSON with one create-card object per line. Valid rows are saved even if others fail; failures are reported by line.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see the report for failed rows"),
+            @ApiResponse(responseCode = "400", description = "Missing or invalid CSV header"),
+            @ApiResponse(responseCode = "415", description = "Unsupported content type")
+    })
+    @PostMapping(value = "/cards/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<CardImportResultDto> importCards(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+
+        CardImportResultDto result = cardImportService.importCards(body, CardFileFormat.fromContentType(contentType));
+
+        return ResponseEntity.ok(result);
+    }
+
     @Operation(summary = "Update status of any card", description = "Updates the status of a specific card (e.g., from ACTIVE to BLOCKED).")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Status updated successfully"),
@@ -72,20 +115,85 @@ public class AdminController {
         return ResponseEntity.ok(responseDto);
     }
 
-    @Operation(summary = "Get all cards with filtering", description = "Returns a paginated list of all cards in the system. Can be filtered by user ID and/or card status.")
+    @Operation(summary = "Set balance stripes of a card", description = "Spreads the balance of a card that receives many transfers "
+            + "across several stripe rows (stripeCount > 1), or moves it back to a single balance (stripeCount = 1).")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved list")
+            @ApiResponse(responseCode = "200", description = "Balance stripes updated successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid stripe count"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    @PatchMapping("/cards/{cardId}/balance-stripes")
+    public ResponseEntity<CardResponseDto> updateBalanceStripes(
+            @PathVariable Long cardId,
+            @Valid @RequestBody UpdateBalanceStripesRequestDto requestDto) {
+
+        Card updatedCard = cardService.updateBalanceStripes(cardId, requestDto.getStripeCount());
+
+        return ResponseEntity.ok(cardMapper.toDto(updatedCard));
+    }
+
+    @Operation(summary = "Get all cards with filtering", description = "Returns a paginated list of all cards in the system. Can be filtered by user ID and/or card status. "
+            + "Responses carry an ETag; send it in If-None-Match to get 304 while no matching card has changed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+            @ApiResponse(responseCode = "304", description = "Cards have not changed since the ETag in If-None-Match")
     })
     @GetMapping("/cards")
     public ResponseEntity<Page<CardResponseDto>> getAllCards(
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) CardStatus status,
-            Pageable pageable) {
+            Pageable pageable,
+            WebRequest webRequest) {
+
+        String etag = userId != null
+                ? "\"cards-" + userId + "-" + cardSetVersionService.getVersion(userId) + "\""
+                : "\"cards-all-" + cardSetVersionService.getGlobalVersion() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        Page<Card> cardPage = cardService.getAllCards(userId, status, pageable);
+        Page<CardView> cardPage = cardService.getAllCards(userId, status, pageable);
         Page<CardResponseDto> responseDtoPage = cardMapper.toDtoPage(cardPage);
 
-        return ResponseEntity.ok(responseDtoPage);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).eTag(etag).body(responseDtoPage);
+    }
+
+    @Operation(summary = "Get all cards with a cursor", description = "Keyset-paginated variant of the card list, ordered by id. "
+            + "Pass an empty cursor for the first page and nextCursor from the response for the next one. No total count is returned.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping(value = "/cards", params = "cursor")
+    public ResponseEntity<CardCursorPageDto> getAllCardsByCursor(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Window<CardView> cardWindow = cardService.scrollAllCards(userId, status, cursor, size);
+
+        return ResponseEntity.ok(cardMapper.toCursorPage(cardWindow));
+    }
+
+    @Operation(summary = "Export all cards", description = "Streams every card matching the filters as NDJSON (default) or CSV, "
+            + "ordered by id. Card numbers are masked.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed")
+    })
+    @GetMapping("/cards/export")
+    public ResponseEntity<StreamingResponseBody> exportCards(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(defaultValue = "NDJSON") CardFileFormat format) {
+
+        StreamingResponseBody body = outputStream -> cardExportService.export(outputStream, format, userId, status);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("cards." + format.getFileExtension()).build().toString())
+                .body(body);
     }
 
     @Operation(summary = "Delete a card", description = "Permanently deletes a card from the system.")
@@ -4,13 +4,15 @@ import com.example.bankcards.dto.ErrorResponseDto;
 import com.example.bankcards.dto.JwtAuthenticationResponseDto;
 import com.example.bankcards.dto.LoginRequestDto;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.LoginExecutor;
+import com.example.bankcards.security.RequestRateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -21,28 +23,42 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Locale;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 @Tag(name = "Authentication Controller", description = "Endpoint for user login")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginExecutor loginExecutor;
     private final JwtTokenProvider tokenProvider;
+    private final RequestRateLimiter rateLimiter;
 
-    public AuthController(AuthenticationManager authenticationManager, JwtTokenProvider tokenProvider) {
-        this.authenticationManager = authenticationManager;
+    public AuthController(LoginExecutor loginExecutor, JwtTokenProvider tokenProvider,
+                          RequestRateLimiter rateLimiter) {
+        this.loginExecutor = loginExecutor;
         this.tokenProvider = tokenProvider;
+        this.rateLimiter = rateLimiter;
     }
 
     @Operation(summary = "User Login", description = "Authenticates a user and returns a JWT token.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Authentication successful, JWT returned"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid username or password")
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid username or password"),
+            @ApiResponse(responseCode = "429", description = "Too many login attempts for this username or address"),
+            @ApiResponse(responseCode = "503", description = "Too many logins in progress, retry later")
     })
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequestDto loginRequest) {
+    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequestDto loginRequest, HttpServletRequest request) {
+        // Checked before the password hash, which is what an attacker would otherwise make us spend CPU on.
+        // Behind a trusted proxy this is already the X-Forwarded-For client, see server.forward-headers-strategy.
+        rateLimiter.acquire(RequestRateLimiter.LOGIN_IP_ROUTE, "ip", request.getRemoteAddr());
+        if (loginRequest.getUsername() != null) {
+            rateLimiter.acquire(RequestRateLimiter.LOGIN_USERNAME_ROUTE, "username",
+                    loginRequest.getUsername().toLowerCase(Locale.ROOT));
+        }
         try {
-            Authentication authentication = authenticationManager.authenticate(
+            Authentication authentication = loginExecutor.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             loginRequest.getUsername(),
                             loginRequest.getPassword()
@@ -1,13 +1,23 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.AsyncTransferStatus;
+import com.example.bankcards.dto.AsyncTransferStatusDto;
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.CardCursorPageDto;
 import com.example.bankcards.dto.CardResponseDto;
 import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.RequestRateLimiter;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.CardListCache;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardSetVersionService;
+import com.example.bankcards.service.TransferIdempotencyService;
 import com.example.bankcards.util.CardMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -16,6 +26,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,9 +36,13 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("api/v1/cards")
@@ -34,34 +50,66 @@ import org.springframework.web.bind.annotation.RestController;
 public class CardController {
     private final CardService cardService;
     private final CardMapper cardMapper;
-    private final UserRepository userRepository;;
-
-    public CardController(CardService cardService, CardMapper cardMapper, UserRepository userRepository) {
+    private final TransferIdempotencyService transferIdempotencyService;
+    private final AsyncTransferService asyncTransferService;
+    private final CardListCache cardListCache;
+    private final CardSetVersionService cardSetVersionService;
+    private final RequestRateLimiter rateLimiter;
+
+    public CardController(CardService cardService, CardMapper cardMapper,
+                          TransferIdempotencyService transferIdempotencyService,
+                          AsyncTransferService asyncTransferService, CardListCache cardListCache,
+                          CardSetVersionService cardSetVersionService, RequestRateLimiter rateLimiter) {
         this.cardService = cardService;
         this.cardMapper = cardMapper;
-        this.userRepository = userRepository;
+        this.transferIdempotencyService = transferIdempotencyService;
+        this.asyncTransferService = asyncTransferService;
+        this.cardListCache = cardListCache;
+        this.cardSetVersionService = cardSetVersionService;
+        this.rateLimiter = rateLimiter;
     }
 
-    @Operation(summary = "Get my cards", description = "Returns a paginated list of cards owned by the currently authenticated user. Can be filtered by status.")
+    @Operation(summary = "Get my cards", description = "Returns a paginated list of cards owned by the currently authenticated user. Can be filtered by status. "
+            + "Responses carry an ETag that changes with any change to the user's cards; send it in If-None-Match to get 304 instead.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved list")
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+            @ApiResponse(responseCode = "304", description = "Cards have not changed since the ETag in If-None-Match")
     })
     @GetMapping
     public ResponseEntity<Page<CardResponseDto>> getMyCards(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam(required = false) CardStatus status,
-            Pageable pageable) {
+            Pageable pageable,
+            WebRequest webRequest) {
 
-        String username = userDetails.getUsername();
+        long version = cardSetVersionService.getVersion(currentUser.getId());
+        String etag = "\"cards-" + currentUser.getId() + "-" + version + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        User currentUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("Authenticated user not found in database"));
+        Page<CardResponseDto> responseDtoPage = cardListCache.getPage(currentUser.getId(), version, status, pageable,
+                () -> cardMapper.toDtoPage(cardService.getCardsByUserId(currentUser.getId(), status, pageable)));
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).eTag(etag).body(responseDtoPage);
+    }
 
-        Page<Card> cardPage = cardService.getCardsByUserId(currentUser.getId(), status, pageable);
+    @Operation(summary = "Get my cards with a cursor", description = "Keyset-paginated variant of the card list, ordered by id. "
+            + "Pass an empty cursor for the first page and nextCursor from the response for the next one. No total count is returned.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CardCursorPageDto> getMyCardsByCursor(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
 
-        Page<CardResponseDto> responseDtoPage = cardMapper.toDtoPage(cardPage);
+        Window<CardView> cardWindow = cardService.scrollCardsByUserId(currentUser.getId(), status, cursor, size);
 
-        return ResponseEntity.ok(responseDtoPage);
+        return ResponseEntity.ok(cardMapper.toCursorPage(cardWindow));
     }
 
     @Operation(summary = "Block my card", description = "Requests to block a specific card owned by the current user.")
@@ -82,20 +130,87 @@ public class CardController {
         return ResponseEntity.ok(responseDto);
     }
 
-    @Operation(summary = "Transfer money between my cards", description = "Performs a money transfer between two cards owned by the current user.")
+    @Operation(summary = "Transfer money between my cards", description = "Performs a money transfer between two cards owned by the current user. "
+            + "Send an Idempotency-Key header to make retries safe: a repeated key returns the original result.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transfer successful"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for a different transfer"),
             @ApiResponse(responseCode = "400", description = "Bad request (e.g., insufficient funds, card not active)"),
             @ApiResponse(responseCode = "403", description = "Forbidden - User does not own one of the cards"),
-            @ApiResponse(responseCode = "404", description = "One of the cards not found")
+            @ApiResponse(responseCode = "404", description = "One of the cards not found"),
+            @ApiResponse(responseCode = "429", description = "Too many transfers, retry after the Retry-After delay")
     })
     @PostMapping("/transfer")
-    public ResponseEntity<Void> transferMoney(
+    public ResponseEntity<TransferResponseDto> transferMoney(
             @Valid @RequestBody CardTransferRequestDto requestDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        rateLimiter.acquire(RequestRateLimiter.TRANSFER_ROUTE, "user", userDetails.getUsername());
+
+        if (idempotencyKey != null) {
+            return ResponseEntity.ok(transferIdempotencyService.transfer(requestDto, userDetails.getUsername(), idempotencyKey));
+        }
+
+        String transferId = cardService.transferBetweenCards(requestDto, userDetails.getUsername());
+
+        return ResponseEntity.ok(new TransferResponseDto(transferId, requestDto.getFromCardId(),
+                requestDto.getToCardId(), requestDto.getAmount()));
+    }
+
+    @Operation(summary = "Transfer money between my cards in a batch", description = "Applies up to 1000 transfers in one transaction. "
+            + "In ATOMIC mode nothing is applied if any transfer is invalid; in BEST_EFFORT mode valid transfers are applied "
+            + "and invalid ones are reported.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+            @ApiResponse(responseCode = "400", description = "Invalid batch request"),
+            @ApiResponse(responseCode = "429", description = "Too many transfers, retry after the Retry-After delay")
+    })
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponseDto> transferMoneyBatch(
+            @Valid @RequestBody BatchTransferRequestDto requestDto,
             @AuthenticationPrincipal UserDetails userDetails) {
 
-        cardService.transferBetweenCards(requestDto, userDetails.getUsername());
+        rateLimiter.acquire(RequestRateLimiter.TRANSFER_ROUTE, "user", userDetails.getUsername());
+
+        return ResponseEntity.ok(cardService.transferBatch(requestDto, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Queue a transfer between my cards", description = "Accepts the transfer for asynchronous processing "
+            + "and returns a request id. Queued transfers are committed in groups; poll the returned location for the result.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transfer accepted"),
+            @ApiResponse(responseCode = "400", description = "Invalid transfer request"),
+            @ApiResponse(responseCode = "429", description = "Too many transfers, retry after the Retry-After delay"),
+            @ApiResponse(responseCode = "503", description = "Transfer queue is full")
+    })
+    @PostMapping("/transfer/async")
+    public ResponseEntity<AsyncTransferStatusDto> transferMoneyAsync(
+            @Valid @RequestBody CardTransferRequestDto requestDto,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        rateLimiter.acquire(RequestRateLimiter.TRANSFER_ROUTE, "user", userDetails.getUsername());
+
+        AsyncTransferService.Submission submission = asyncTransferService.submit(requestDto, userDetails.getUsername());
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/cards/transfer/async/" + submission.requestId()))
+                .body(new AsyncTransferStatusDto(submission.requestId(), AsyncTransferStatus.PENDING, null,
+                        requestDto.getFromCardId(), requestDto.getToCardId(), requestDto.getAmount(), null));
+    }
+
+    @Operation(summary = "Get queued transfer status", description = "Returns the status of a transfer queued by the current user.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status returned"),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired request id")
+    })
+    @GetMapping("/transfer/async/{requestId}")
+    public ResponseEntity<AsyncTransferStatusDto> getAsyncTransferStatus(
+            @PathVariable String requestId,
+            @AuthenticationPrincipal UserDetails userDetails) {
 
-        return ResponseEntity.ok().build();
+        return asyncTransferService.getStatus(requestId, userDetails.getUsername())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
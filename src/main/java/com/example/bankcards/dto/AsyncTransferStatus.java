@@ -0,0 +1,7 @@
+package com.example.bankcards.dto;
+
+public enum AsyncTransferStatus {
+    PENDING,
+    SUCCEEDED,
+    FAILED
+}
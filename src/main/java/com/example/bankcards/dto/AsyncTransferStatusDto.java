@@ -0,0 +1,42 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+public class AsyncTransferStatusDto {
+    private String requestId;
+    private AsyncTransferStatus status;
+    private String transferId;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private String error;
+
+    public AsyncTransferStatusDto() {
+    }
+
+    public AsyncTransferStatusDto(String requestId, AsyncTransferStatus status, String transferId, Long fromCardId,
+                                  Long toCardId, BigDecimal amount, String error) {
+        this.requestId = requestId;
+        this.status = status;
+        this.transferId = transferId;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+        this.error = error;
+    }
+
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+    public AsyncTransferStatus getStatus() { return status; }
+    public void setStatus(AsyncTransferStatus status) { this.status = status; }
+    public String getTransferId() { return transferId; }
+    public void setTransferId(String transferId) { this.transferId = transferId; }
+    public Long getFromCardId() { return fromCardId; }
+    public void setFromCardId(Long fromCardId) { this.fromCardId = fromCardId; }
+    public Long getToCardId() { return toCardId; }
+    public void setToCardId(Long toCardId) { this.toCardId = toCardId; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
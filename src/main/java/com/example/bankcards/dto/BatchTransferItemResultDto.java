@@ -0,0 +1,27 @@
+package com.example.bankcards.dto;
+
+public class BatchTransferItemResultDto {
+    private int index;
+    private BatchTransferItemStatus status;
+    private String transferId;
+    private String error;
+
+    public BatchTransferItemResultDto() {
+    }
+
+    public BatchTransferItemResultDto(int index, BatchTransferItemStatus status, String transferId, String error) {
+        this.index = index;
+        this.status = status;
+        this.transferId = transferId;
+        this.error = error;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    public BatchTransferItemStatus getStatus() { return status; }
+    public void setStatus(BatchTransferItemStatus status) { this.status = status; }
+    public String getTransferId() { return transferId; }
+    public void setTransferId(String transferId) { this.transferId = transferId; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.dto;
+
+public enum BatchTransferItemStatus {
+    SUCCEEDED,
+    FAILED,
+    NOT_APPLIED
+}
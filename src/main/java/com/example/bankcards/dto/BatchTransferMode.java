@@ -0,0 +1,8 @@
+package com.example.bankcards.dto;
+
+public enum BatchTransferMode {
+    /** Nothing is applied unless every transfer in the batch is valid. */
+    ATOMIC,
+    /** Valid transfers are applied, invalid ones are reported and skipped. */
+    BEST_EFFORT
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BatchTransferRequestDto {
+
+    @NotEmpty(message = "Batch must contain at least one transfer")
+    @Size(max = 1000, message = "Batch cannot contain more than 1000 transfers")
+    private List<@Valid @NotNull CardTransferRequestDto> transfers;
+
+    @NotNull(message = "Mode cannot be null")
+    private BatchTransferMode mode = BatchTransferMode.ATOMIC;
+
+    public List<CardTransferRequestDto> getTransfers() { return transfers; }
+    public void setTransfers(List<CardTransferRequestDto> transfers) { this.transfers = transfers; }
+    public BatchTransferMode getMode() { return mode; }
+    public void setMode(BatchTransferMode mode) { this.mode = mode; }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public class BatchTransferResponseDto {
+    private BatchTransferMode mode;
+    private int succeeded;
+    private int failed;
+    private List<BatchTransferItemResultDto> results;
+
+    public BatchTransferResponseDto() {
+    }
+
+    public BatchTransferResponseDto(BatchTransferMode mode, List<BatchTransferItemResultDto> results) {
+        this.mode = mode;
+        this.results = results;
+        this.succeeded = (int) results.stream().filter(r -> r.getStatus() == BatchTransferItemStatus.SUCCEEDED).count();
+        this.failed = (int) results.stream().filter(r -> r.getStatus() == BatchTransferItemStatus.FAILED).count();
+    }
+
+    public BatchTransferMode getMode() { return mode; }
+    public void setMode(BatchTransferMode mode) { this.mode = mode; }
+    public int getSucceeded() { return succeeded; }
+    public void setSucceeded(int succeeded) { this.succeeded = succeeded; }
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+    public List<BatchTransferItemResultDto> getResults() { return results; }
+    public void setResults(List<BatchTransferItemResultDto> results) { this.results = results; }
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public class CardCursorPageDto {
+    private List<CardResponseDto> content;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public CardCursorPageDto() {
+    }
+
+    public CardCursorPageDto(List<CardResponseDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+
+    public List<CardResponseDto> getContent() { return content; }
+    public void setContent(List<CardResponseDto> content) { this.content = content; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
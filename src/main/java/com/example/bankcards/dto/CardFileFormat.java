@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import org.springframework.http.MediaType;
+
+public enum CardFileFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    CardFileFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() { return contentType; }
+    public String getFileExtension() { return fileExtension; }
+
+    public static CardFileFormat fromContentType(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        for (CardFileFormat format : values()) {
+            if (MediaType.parseMediaType(format.contentType).isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content type " + contentType + ", expected text/csv or application/x-ndjson.");
+    }
+}
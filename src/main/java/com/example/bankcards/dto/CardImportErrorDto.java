@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+public class CardImportErrorDto {
+    private long line;
+    private String error;
+
+    public CardImportErrorDto() {
+    }
+
+    public CardImportErrorDto(long line, String error) {
+        this.line = line;
+        this.error = error;
+    }
+
+    public long getLine() { return line; }
+    public void setLine(long line) { this.line = line; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
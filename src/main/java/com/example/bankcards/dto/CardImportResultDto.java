@@ -0,0 +1,20 @@
+package com.example.bankcards.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CardImportResultDto {
+    private long imported;
+    private long failed;
+    private List<CardImportErrorDto> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    public List<CardImportErrorDto> getErrors() { return errors; }
+    public void setErrors(List<CardImportErrorDto> errors) { this.errors = errors; }
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public void setErrorsTruncated(boolean errorsTruncated) { this.errorsTruncated = errorsTruncated; }
+}
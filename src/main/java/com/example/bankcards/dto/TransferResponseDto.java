@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+public class TransferResponseDto {
+    private String transferId;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+
+    public TransferResponseDto() {
+    }
+
+    public TransferResponseDto(String transferId, Long fromCardId, Long toCardId, BigDecimal amount) {
+        this.transferId = transferId;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+    }
+
+    public String getTransferId() { return transferId; }
+    public void setTransferId(String transferId) { this.transferId = transferId; }
+    public Long getFromCardId() { return fromCardId; }
+    public void setFromCardId(Long fromCardId) { this.fromCardId = fromCardId; }
+    public Long getToCardId() { return toCardId; }
+    public void setToCardId(Long toCardId) { this.toCardId = toCardId; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class UpdateBalanceStripesRequestDto {
+
+    @NotNull(message = "Stripe count cannot be null")
+    @Min(value = 1, message = "Stripe count must be at least 1")
+    @Max(value = 64, message = "Stripe count cannot be greater than 64")
+    private Integer stripeCount;
+
+    public Integer getStripeCount() {
+        return stripeCount;
+    }
+
+    public void setStripeCount(Integer stripeCount) {
+        this.stripeCount = stripeCount;
+    }
+}
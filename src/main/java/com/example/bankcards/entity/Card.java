@@ -2,6 +2,7 @@ package com.example.bankcards.entity;
 
 import com.example.bankcards.util.CryptoConverter;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Formula;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Objects;
@@ -10,14 +11,19 @@ import java.util.Objects;
 @Table(name = "cards")
 public class Card {
 
+    // Pooled sequence instead of IDENTITY so Hibernate can batch card inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
     @Convert(converter = CryptoConverter.class)
     @Column(name = "card_number", nullable = false, unique = true, length = 255)
     private String cardNumber;
 
+    @Column(name = "card_number_hash", unique = true, length = 64)
+    private String cardNumberHash;
+
     @Column(name = "expiry_date", nullable = false)
     private LocalDate expiryDate;
 
@@ -25,7 +31,21 @@ public class Card {
     @Column(name = "status", nullable = false)
     private CardStatus status;
 
-    @Column(name = "balance", nullable = false, precision = 19, scale = 4)
+    // Snapshot columns are only rewritten by CardBalanceSnapshotJob; transfers append to card_ledger instead.
+    @Column(name = "balance", nullable = false, updatable = false, precision = 19, scale = 4)
+    private BigDecimal snapshotBalance = BigDecimal.ZERO;
+
+    @Column(name = "ledger_position", nullable = false, updatable = false)
+    private long ledgerPosition;
+
+    // Cards with more than one stripe keep their balance in card_balance_stripes instead of the ledger snapshot.
+    @Column(name = "stripe_count", nullable = false, updatable = false)
+    private int stripeCount = 1;
+
+    @Formula("(CASE WHEN stripe_count > 1 "
+            + "THEN COALESCE((SELECT SUM(s.balance) FROM card_balance_stripes s WHERE s.card_id = id), 0) "
+            + "ELSE balance + COALESCE((SELECT SUM(l.amount) FROM card_ledger l "
+            + "WHERE l.card_id = id AND l.id > ledger_position), 0) END)")
     private BigDecimal balance;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -51,6 +71,14 @@ public class Card {
         this.cardNumber = cardNumber;
     }
 
+    public String getCardNumberHash() {
+        return cardNumberHash;
+    }
+
+    public void setCardNumberHash(String cardNumberHash) {
+        this.cardNumberHash = cardNumberHash;
+    }
+
     public LocalDate getExpiryDate() {
         return expiryDate;
     }
@@ -75,6 +103,26 @@ public class Card {
         this.balance = balance;
     }
 
+    public BigDecimal getSnapshotBalance() {
+        return snapshotBalance;
+    }
+
+    public void setSnapshotBalance(BigDecimal snapshotBalance) {
+        this.snapshotBalance = snapshotBalance;
+    }
+
+    public long getLedgerPosition() {
+        return ledgerPosition;
+    }
+
+    public int getStripeCount() {
+        return stripeCount;
+    }
+
+    public boolean isStriped() {
+        return stripeCount > 1;
+    }
+
     public User getUser() {
         return user;
     }
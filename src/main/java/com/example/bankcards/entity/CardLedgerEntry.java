@@ -0,0 +1,75 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Append-only record of a balance change. A transfer writes a debit and a credit entry sharing one transfer id.
+ */
+@Entity
+@Table(name = "card_ledger")
+public class CardLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "card_id", nullable = false, updatable = false)
+    private Card card;
+
+    @Column(name = "transfer_id", nullable = false, updatable = false, length = 36)
+    private String transferId;
+
+    @Column(name = "amount", nullable = false, updatable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public CardLedgerEntry() {
+    }
+
+    public CardLedgerEntry(Card card, String transferId, BigDecimal amount, Instant createdAt) {
+        this.card = card;
+        this.transferId = transferId;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Card getCard() {
+        return card;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CardLedgerEntry that = (CardLedgerEntry) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
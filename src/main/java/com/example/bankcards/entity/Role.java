@@ -1,9 +1,13 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.config.HibernateCacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "roles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ROLES_REGION)
 public class Role {
 
     @Id
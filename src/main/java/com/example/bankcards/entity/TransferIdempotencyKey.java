@@ -0,0 +1,102 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Result of a transfer made with an {@code Idempotency-Key} header, stored in the same transaction as the transfer.
+ */
+@Entity
+@Table(name = "transfer_idempotency_keys")
+public class TransferIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "username", nullable = false, length = 50)
+    private String username;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "from_card_id", nullable = false)
+    private Long fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private Long toCardId;
+
+    @Column(name = "amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(name = "transfer_id", length = 36)
+    private String transferId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public TransferIdempotencyKey() {
+    }
+
+    public TransferIdempotencyKey(String username, String idempotencyKey, Long fromCardId, Long toCardId,
+                                  BigDecimal amount, Instant createdAt) {
+        this.username = username;
+        this.idempotencyKey = idempotencyKey;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Long getFromCardId() {
+        return fromCardId;
+    }
+
+    public Long getToCardId() {
+        return toCardId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public void setTransferId(String transferId) {
+        this.transferId = transferId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TransferIdempotencyKey that = (TransferIdempotencyKey) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
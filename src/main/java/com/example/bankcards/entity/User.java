@@ -1,6 +1,11 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.config.HibernateCacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.util.HashSet;
 import java.util.Objects;
@@ -20,7 +25,13 @@ public class User {
     @Column(name = "password", nullable = false)
     private String password;
 
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    // Роли загружаются отдельным запросом, а не JOIN, чтобы набор ролей мог браться из кэша второго уровня
     @ManyToMany(fetch = FetchType.EAGER) // EAGER, т.к. роли нужны почти всегда вместе с пользователем
+    @Fetch(FetchMode.SELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.USER_ROLES_REGION)
     @JoinTable(
             name = "users_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -55,6 +66,14 @@ public class User {
         this.password = password;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public Set<Role> getRoles() {
         return roles;
     }
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class CardNotActiveException extends IllegalStateException {
+    public CardNotActiveException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class InsufficientFundsException extends IllegalStateException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
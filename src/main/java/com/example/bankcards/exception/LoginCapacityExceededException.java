@@ -0,0 +1,11 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class LoginCapacityExceededException extends RuntimeException {
+    public LoginCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Balance stripes of cards with {@code cards.stripe_count > 1}. Each stripe row holds part of the balance,
+ * so concurrent transfers on a hot card lock different stripe rows instead of one {@code cards} row.
+ */
+@Repository
+public class CardBalanceStripeRepository {
+
+    private static final String CREDIT_SQL =
+            "UPDATE card_balance_stripes SET balance = balance + ? WHERE card_id = ? AND stripe_no = ?";
+
+    private static final String DEBIT_SQL =
+            "UPDATE card_balance_stripes SET balance = balance - ? WHERE card_id = ? AND stripe_no = ? AND balance >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public CardBalanceStripeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Adds the amount to a stripe that no other open transaction is writing, so concurrent credits only queue
+     * once every stripe is busy; then a random stripe is used.
+     */
+    public void credit(long cardId, int stripeCount, BigDecimal amount) {
+        List<Integer> free = jdbcTemplate.queryForList(
+                "SELECT stripe_no FROM card_balance_stripes WHERE card_id = ? FETCH FIRST 1 ROWS ONLY FOR UPDATE SKIP LOCKED",
+                Integer.class, cardId);
+        int stripeNo = free.isEmpty() ? ThreadLocalRandom.current().nextInt(stripeCount) : free.get(0);
+        jdbcTemplate.update(CREDIT_SQL, amount, cardId, stripeNo);
+    }
+
+    /**
+     * Takes the amount from the stripes in stripe order, draining each one before moving to the next.
+     * Callers hold an exclusive lock on the card, so concurrent credits can only raise the stripes read here.
+     *
+     * @return false if the stripes together do not have enough funds
+     */
+    public boolean debit(long cardId, BigDecimal amount) {
+        List<StripeBalance> stripes = jdbcTemplate.query(
+                "SELECT stripe_no, balance FROM card_balance_stripes WHERE card_id = ? AND balance > 0 ORDER BY stripe_no",
+                (rs, rowNum) -> new StripeBalance(rs.getInt("stripe_no"), rs.getBigDecimal("balance")), cardId);
+        BigDecimal total = stripes.stream().map(StripeBalance::balance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (total.compareTo(amount) < 0) {
+            return false;
+        }
+        BigDecimal remaining = amount;
+        for (StripeBalance stripe : stripes) {
+            BigDecimal part = stripe.balance().min(remaining);
+            if (jdbcTemplate.update(DEBIT_SQL, part, cardId, stripe.stripeNo(), part) != 1) {
+                return false;
+            }
+            remaining = remaining.subtract(part);
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    public Map<Long, BigDecimal[]> findStripes(Collection<Long> cardIds) {
+        Map<Long, BigDecimal[]> stripes = new HashMap<>();
+        if (cardIds.isEmpty()) {
+            return stripes;
+        }
+        List<StripeRow> rows = namedParameterJdbcTemplate.query("""
+                        SELECT s.card_id, s.stripe_no, s.balance, c.stripe_count
+                        FROM card_balance_stripes s JOIN cards c ON c.id = s.card_id
+                        WHERE s.card_id IN (:ids)""",
+                new MapSqlParameterSource("ids", cardIds),
+                (rs, rowNum) -> new StripeRow(rs.getLong("card_id"), rs.getInt("stripe_no"),
+                        rs.getBigDecimal("balance"), rs.getInt("stripe_count")));
+        for (StripeRow row : rows) {
+            BigDecimal[] balances = stripes.computeIfAbsent(row.cardId(), id -> {
+                BigDecimal[] empty = new BigDecimal[row.stripeCount()];
+                Arrays.fill(empty, BigDecimal.ZERO);
+                return empty;
+            });
+            balances[row.stripeNo()] = row.balance();
+        }
+        return stripes;
+    }
+
+    /**
+     * Applies per-stripe deltas with one JDBC batch. Callers hold an exclusive lock on the cards.
+     */
+    public void applyDeltas(List<StripeDelta> deltas) {
+        jdbcTemplate.batchUpdate(CREDIT_SQL, deltas, deltas.size(),
+                (ps, delta) -> {
+                    ps.setBigDecimal(1, delta.amount());
+                    ps.setLong(2, delta.cardId());
+                    ps.setInt(3, delta.stripeNo());
+                });
+    }
+
+    public void replace(long cardId, int stripeCount, BigDecimal balance) {
+        deleteAll(cardId);
+        List<Object[]> rows = new ArrayList<>(stripeCount);
+        for (int stripeNo = 0; stripeNo < stripeCount; stripeNo++) {
+            rows.add(new Object[]{cardId, stripeNo, stripeNo == 0 ? balance : BigDecimal.ZERO});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO card_balance_stripes (card_id, stripe_no, balance) VALUES (?, ?, ?)", rows);
+    }
+
+    public void deleteAll(long cardId) {
+        jdbcTemplate.update("DELETE FROM card_balance_stripes WHERE card_id = ?", cardId);
+    }
+
+    public record StripeDelta(long cardId, int stripeNo, BigDecimal amount) {
+    }
+
+    private record StripeBalance(int stripeNo, BigDecimal balance) {
+    }
+
+    private record StripeRow(long cardId, int stripeNo, BigDecimal balance, int stripeCount) {
+    }
+}
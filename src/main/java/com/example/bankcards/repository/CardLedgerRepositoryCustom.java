@@ -0,0 +1,12 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardLedgerEntry;
+
+import java.util.List;
+
+public interface CardLedgerRepositoryCustom {
+    /**
+     * Inserts the entries with JDBC batching; ledger ids are IDENTITY, which Hibernate cannot batch.
+     */
+    void insertAll(List<CardLedgerEntry> entries);
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardLedgerEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class CardLedgerRepositoryCustomImpl implements CardLedgerRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO card_ledger (card_id, transfer_id, amount, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public CardLedgerRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                          @Value("${app.ledger.insert-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<CardLedgerEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, batchSize, (ps, entry) -> {
+            ps.setLong(1, entry.getCard().getId());
+            ps.setString(2, entry.getTransferId());
+            ps.setBigDecimal(3, entry.getAmount());
+            ps.setTimestamp(4, Timestamp.from(entry.getCreatedAt()));
+        });
+    }
+}
@@ -5,11 +5,72 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card> {
-    boolean existsByCardNumber(String cardNumber);
+public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card>, CardRepositoryCustom {
+    String CURRENT_BALANCE_SQL = "CASE WHEN c.stripe_count > 1 "
+            + "THEN COALESCE((SELECT SUM(s.balance) FROM card_balance_stripes s WHERE s.card_id = c.id), 0) "
+            + "ELSE c.balance + COALESCE((SELECT SUM(l.amount) FROM card_ledger l "
+            + "WHERE l.card_id = c.id AND l.id > c.ledger_position), 0) END";
+
+    boolean existsByCardNumberHash(String cardNumberHash);
+
+    @Query("SELECT c.user.id FROM Card c WHERE c.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    @Query("SELECT c.cardNumberHash FROM Card c WHERE c.cardNumberHash IN :hashes")
+    List<String> findExistingCardNumberHashes(@Param("hashes") Collection<String> hashes);
+
+    // Explicit query: the derived one outer-joins users and filters on users.id, which H2 plans as a cards scan.
+    @Query("SELECT c FROM Card c WHERE c.user.id = :userId")
+    Page<Card> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    // Rows are locked in the ORDER BY order, which keeps batches and single transfers in the same lock order.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM Card c WHERE c.id = :id")
+    Optional<Card> findByIdForShare(@Param("id") Long id);
+
+    // Separate statement so it sees every ledger entry committed before the row lock was granted.
+    @Query(value = "SELECT " + CURRENT_BALANCE_SQL + " FROM cards c WHERE c.id = :id", nativeQuery = true)
+    BigDecimal findCurrentBalance(@Param("id") Long id);
+
+    @Query(value = "SELECT c.id AS id, " + CURRENT_BALANCE_SQL + " AS balance FROM cards c WHERE c.id IN :ids",
+            nativeQuery = true)
+    List<CardBalanceView> findCurrentBalances(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT stripe_count FROM cards WHERE id = :id", nativeQuery = true)
+    Optional<Integer> findStripeCount(@Param("id") Long id);
+
+    // Moves ledger_position past every existing entry: in both modes the balance passed in already includes them.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cards SET balance = :balance, stripe_count = :stripeCount, "
+            + "ledger_position = COALESCE((SELECT MAX(l.id) FROM card_ledger l WHERE l.card_id = :id), ledger_position) "
+            + "WHERE id = :id", nativeQuery = true)
+    int updateBalanceMode(@Param("id") Long id, @Param("balance") BigDecimal balance,
+                          @Param("stripeCount") int stripeCount);
+
+    interface CardBalanceView {
+        Long getId();
 
-    Page<Card> findByUserId(Long userId, Pageable pageable);
+        BigDecimal getBalance();
+    }
 }
\ No newline at end of file
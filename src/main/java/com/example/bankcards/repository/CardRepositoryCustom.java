@@ -0,0 +1,36 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+public interface CardRepositoryCustom {
+    /**
+     * Selects only the listed columns with the owner joined in, so a page is one query (plus a count when needed)
+     * instead of one query per owner for the lazy {@code user} and its eager roles.
+     */
+    Page<CardView> findViews(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * Keyset variant of {@link #findViews}: rows with {@code id} after the position, ordered by {@code id}.
+     */
+    Window<CardView> scrollViews(Specification<Card> spec, KeysetScrollPosition position, int limit);
+
+    /**
+     * Forward-only stream over every matching row ordered by {@code id}, read with the export fetch size.
+     * Must be consumed and closed inside a transaction.
+     */
+    Stream<CardView> streamViews(Specification<Card> spec);
+
+    record CardView(Long id, String cardNumber, LocalDate expiryDate, CardStatus status, BigDecimal balance,
+                    Long userId, String username) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    private static final String ID_KEY = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int exportFetchSize;
+
+    public CardRepositoryCustomImpl(@Value("${app.export.fetch-size:500}") int exportFetchSize) {
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    @Override
+    public Page<CardView> findViews(Specification<Card> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardView> query = cb.createQuery(CardView.class);
+        Root<Card> root = selectViews(query, cb);
+        where(query, spec.toPredicate(root, query, cb));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<CardView> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public Window<CardView> scrollViews(Specification<Card> spec, KeysetScrollPosition position, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardView> query = cb.createQuery(CardView.class);
+        Root<Card> root = selectViews(query, cb);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (!position.isInitial()) {
+            Predicate afterPosition = cb.greaterThan(root.get(ID_KEY), (Long) position.getKeys().get(ID_KEY));
+            predicate = predicate == null ? afterPosition : cb.and(predicate, afterPosition);
+        }
+        where(query, predicate);
+        query.orderBy(cb.asc(root.get(ID_KEY)));
+
+        List<CardView> rows = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+        boolean hasNext = rows.size() > limit;
+        List<CardView> content = hasNext ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        return Window.from(content, index -> ScrollPosition.forward(Map.of(ID_KEY, content.get(index).id())), hasNext);
+    }
+
+    @Override
+    public Stream<CardView> streamViews(Specification<Card> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardView> query = cb.createQuery(CardView.class);
+        Root<Card> root = selectViews(query, cb);
+        where(query, spec.toPredicate(root, query, cb));
+        query.orderBy(cb.asc(root.get(ID_KEY)));
+
+        // Constructor results are not managed entities, so the persistence context stays empty while streaming.
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static Root<Card> selectViews(CriteriaQuery<CardView> query, CriteriaBuilder cb) {
+        Root<Card> root = query.from(Card.class);
+        Join<Card, User> user = root.join("user");
+        query.select(cb.construct(CardView.class,
+                root.get("id"), root.get("cardNumber"), root.get("expiryDate"), root.get("status"),
+                root.get("balance"), user.get("id"), user.get("username")));
+        return root;
+    }
+
+    private long count(Specification<Card> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Card> root = query.from(Card.class);
+        where(query, spec.toPredicate(root, query, cb));
+        query.select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Card set versions in {@code card_set_versions}: one per user, bumped whenever one of the user's cards changes,
+ * and one for all cards under {@link #GLOBAL_SCOPE}. A version is the sum of its stripe rows and a bump adds one
+ * to a single stripe, so concurrent changes for the same user, such as credits to a hot card, lock different rows.
+ * Written with plain JDBC and kept off the {@code User} entity, so saving a user can never write back an older
+ * version and Hibernate does not drop its cached role sets.
+ */
+@Repository
+public class CardSetVersionRepository {
+
+    public static final long GLOBAL_SCOPE = 0;
+
+    private static final String INCREMENT_SQL =
+            "UPDATE card_set_versions SET version = version + 1 WHERE scope_id = ? AND stripe_no = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardSetVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long findVersion(long scopeId) {
+        Long version = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(version), 0) FROM card_set_versions WHERE scope_id = ?", Long.class, scopeId);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Adds one to a stripe that no other open transaction is writing.
+     *
+     * @return false if every existing stripe is held by another transaction, or the scope has none yet
+     */
+    public boolean incrementFreeStripe(long scopeId) {
+        List<Integer> free = jdbcTemplate.queryForList(
+                "SELECT stripe_no FROM card_set_versions WHERE scope_id = ? FETCH FIRST 1 ROWS ONLY FOR UPDATE SKIP LOCKED",
+                Integer.class, scopeId);
+        if (free.isEmpty()) {
+            return false;
+        }
+        jdbcTemplate.update(INCREMENT_SQL, scopeId, free.get(0));
+        return true;
+    }
+
+    /**
+     * Adds one to a random stripe, waiting for its lock if another transaction holds it.
+     */
+    public void incrementAnyStripe(long scopeId, int stripeCount) {
+        jdbcTemplate.update(INCREMENT_SQL, scopeId, ThreadLocalRandom.current().nextInt(stripeCount));
+    }
+
+    public void createStripes(long scopeId, int stripeCount) {
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT stripe_no FROM card_set_versions WHERE scope_id = ?", Integer.class, scopeId));
+        List<Object[]> rows = new ArrayList<>(stripeCount);
+        for (int stripeNo = 0; stripeNo < stripeCount; stripeNo++) {
+            if (!existing.contains(stripeNo)) {
+                rows.add(new Object[]{scopeId, stripeNo});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO card_set_versions (scope_id, stripe_no, version) VALUES (?, ?, 0)", rows);
+        }
+    }
+}
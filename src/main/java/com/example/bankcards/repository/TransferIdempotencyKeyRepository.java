@@ -0,0 +1,22 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, Long> {
+    Optional<TransferIdempotencyKey> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TransferIdempotencyKey k WHERE k.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") Instant threshold);
+}
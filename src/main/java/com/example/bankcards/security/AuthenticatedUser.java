@@ -0,0 +1,52 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Security principal that carries the user id and token version alongside the usual
+ * {@link UserDetails} data, so controllers do not have to look the user up again.
+ */
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final int tokenVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, String password, int tokenVersion,
+                             Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.tokenVersion = tokenVersion;
+        this.authorities = List.copyOf(authorities);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
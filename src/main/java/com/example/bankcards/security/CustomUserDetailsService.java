@@ -1,41 +1,77 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.config.ReadReplicaRoutingDataSource;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserChangedEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.Collection;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.USER_DETAILS_CACHE, key = "#username")
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        // Routed as this user's read, so a login right after registering or a role change is served by the primary.
+        User user = ReadReplicaRoutingDataSource.readingUser(username, () -> userRepository.findByUsername(username))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
         Collection<? extends GrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority(role.getName()))
                 .collect(Collectors.toList());
 
-        return new org.springframework.security.core.userdetails.User(
+        return new AuthenticatedUser(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
+                user.getTokenVersion(),
                 authorities
         );
     }
+
+    /**
+     * Called after a successful login whose stored hash was made with a lower BCrypt cost than configured.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
+
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) userDetails;
+        return new AuthenticatedUser(authenticatedUser.getId(), authenticatedUser.getUsername(), newPassword,
+                authenticatedUser.getTokenVersion(), authenticatedUser.getAuthorities());
+    }
+
+    // Evicted only after the change is committed, so a concurrent request cannot reload the old roles.
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = CacheConfig.USER_DETAILS_CACHE, key = "#event.username()")
+    public void onUserChanged(UserChangedEvent event) {
+    }
 }
\ No newline at end of file
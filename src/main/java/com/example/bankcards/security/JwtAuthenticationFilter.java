@@ -1,9 +1,13 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,42 +19,83 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionService tokenVersionService;
+    private final boolean stateless;
+    private final MeterRegistry meterRegistry;
 
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, UserDetailsService userDetailsService,
+                                   TokenVersionService tokenVersionService,
+                                   @Value("${app.jwt.stateless:false}") boolean stateless,
+                                   MeterRegistry meterRegistry) {
         this.tokenProvider = tokenProvider;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionService = tokenVersionService;
+        this.stateless = stateless;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "anonymous";
         try {
             String jwt = getJwtFromRequest(request);
+            Optional<Claims> claims = StringUtils.hasText(jwt) ? tokenProvider.parseClaims(jwt) : Optional.empty();
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJwt(jwt);
+            UserDetails userDetails = claims.map(this::resolvePrincipal).orElse(null);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                outcome = "authenticated";
+            } else if (claims.isPresent()) {
+                outcome = "rejected";
             }
         } catch (Exception ex) {
+            outcome = "error";
             logger.error("Could not set user authentication in security context", ex);
         }
+        // Only the token check is timed; the rest of the chain is covered by http.server.requests.
+        sample.stop(Timer.builder("security.jwt.authentication")
+                .description("Time spent resolving the principal from the bearer token")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
 
         filterChain.doFilter(request, response);
     }
 
+    // In stateless mode the principal comes from the token claims, and only the token version is checked.
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (stateless) {
+            Optional<AuthenticatedUser> principal = tokenProvider.getPrincipal(claims);
+            if (principal.isPresent()) {
+                AuthenticatedUser user = principal.get();
+                return tokenVersionService.isCurrent(user.getId(), user.getTokenVersion()) ? user : null;
+            }
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        Integer tokenVersion = tokenProvider.getTokenVersion(claims);
+        if (tokenVersion != null && userDetails instanceof AuthenticatedUser user
+                && user.getTokenVersion() != tokenVersion) {
+            return null;
+        }
+        return userDetails;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
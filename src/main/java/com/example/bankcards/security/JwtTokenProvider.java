@@ -1,58 +1,131 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String TOKEN_VERSION_CLAIM = "ver";
 
-    @Value("${app.jwt.expiration-ms}")
-    private long jwtExpirationInMs;
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long jwtExpirationInMs;
+
+    // Recently verified tokens, keyed by SHA-256 of the token so raw bearer tokens are not kept in memory.
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtTokenProvider(@Value("${app.jwt.secret}") String jwtSecret,
+                            @Value("${app.jwt.expiration-ms}") long jwtExpirationInMs,
+                            @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize,
+                            @Value("${app.jwt.cache.ttl-ms:60000}") long cacheTtlMs) {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.jwtExpirationInMs = jwtExpirationInMs;
+
+        Duration cacheTtl = Duration.ofMillis(cacheTtlMs);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.creating((String tokenHash, Claims claims) -> {
+                    Duration untilExpiry = Duration.ofMillis(claims.getExpiration().getTime() - System.currentTimeMillis());
+                    return untilExpiry.compareTo(cacheTtl) < 0 ? untilExpiry : cacheTtl;
+                }))
+                .build();
+    }
 
     public String generateToken(Authentication authentication) {
         String username = authentication.getName();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-
-        return Jwts.builder()
+        var builder = Jwts.builder()
                 .subject(username)
-                .issuedAt(new Date())
-                .expiration(expiryDate)
-                .signWith(key)
-                .compact();
+                .issuedAt(now)
+                .expiration(expiryDate);
+
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(ROLES_CLAIM, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                    .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        }
+
+        return builder.signWith(key).compact();
     }
 
-    public String getUsernameFromJwt(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    /**
+     * Verifies the signature and expiry once and returns the claims, or empty if the token is not valid or has no
+     * expiry.
+     */
+    public Optional<Claims> parseClaims(String token) {
+        String tokenHash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            // Every token we issue has an expiry; one without would never expire and cannot be cached by it.
+            if (claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+            verifiedTokens.put(tokenHash, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Builds the principal from the id, roles and version claims; empty for tokens issued without them.
+     */
+    public Optional<AuthenticatedUser> getPrincipal(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        Integer tokenVersion = getTokenVersion(claims);
+        if (userId == null || roles == null || tokenVersion == null) {
+            return Optional.empty();
+        }
 
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return Optional.of(new AuthenticatedUser(userId, claims.getSubject(), null, tokenVersion, authorities));
+    }
 
-        return claims.getSubject();
+    public Integer getTokenVersion(Claims claims) {
+        return claims.get(TOKEN_VERSION_CLAIM, Integer.class);
     }
 
-    public boolean validateToken(String authToken) {
+    private static String hash(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(authToken);
-            return true;
-        } catch (Exception ex) {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password verification on a small fixed pool with a bounded queue, so a burst of logins can use at most
+ * {@code threads} cores for BCrypt and never starves the threads serving card reads and transfers. When the
+ * queue is full, or a queued login would wait past {@code timeout-ms}, the login is rejected with 503 at once.
+ */
+@Component
+public class LoginExecutor {
+
+    private final AuthenticationManager authenticationManager;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final MeterRegistry meterRegistry;
+
+    public LoginExecutor(AuthenticationManager authenticationManager, MeterRegistry meterRegistry,
+                         @Value("${app.security.login.threads:0}") int threads,
+                         @Value("${app.security.login.queue-capacity:100}") int queueCapacity,
+                         @Value("${app.security.login.timeout-ms:5000}") long timeoutMs) {
+        this.authenticationManager = authenticationManager;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "login-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.login.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Logins waiting for a password verification thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Logins currently verifying a password")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public Authentication authenticate(Authentication request) {
+        long startedAt = System.nanoTime();
+        String outcome = "failure";
+        FutureTask<Authentication> task = new FutureTask<>(() -> authenticationManager.authenticate(request));
+        try {
+            executor.execute(task);
+            Authentication authentication = task.get(timeoutMs, TimeUnit.MILLISECONDS);
+            outcome = "success";
+            return authentication;
+        } catch (RejectedExecutionException e) {
+            outcome = "rejected";
+            throw new LoginCapacityExceededException("Too many logins in progress, retry later.");
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            task.cancel(true);
+            executor.remove(task);
+            throw new LoginCapacityExceededException("Login timed out, retry later.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            throw new LoginCapacityExceededException("Login was interrupted, retry later.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException authenticationException) {
+                throw authenticationException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Login failed", e.getCause());
+        } finally {
+            Timer.builder("auth.login")
+                    .description("Login latency including the wait for a password verification thread")
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+}
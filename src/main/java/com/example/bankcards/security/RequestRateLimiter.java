@@ -0,0 +1,79 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key token buckets for the routes configured under {@code app.rate-limit.routes}. Each bucket is a single
+ * {@link AtomicLong} holding the time at which it will be full again (the GCRA form of a token bucket), updated
+ * with compare-and-set, so concurrent requests never wait on a lock; buckets live in a bounded Caffeine map
+ * whose table is itself split into independently updated bins.
+ */
+@Component
+public class RequestRateLimiter {
+
+    public static final String LOGIN_IP_ROUTE = "login-ip";
+    public static final String LOGIN_USERNAME_ROUTE = "login-username";
+    public static final String TRANSFER_ROUTE = "transfer";
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    @Autowired
+    public RequestRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RequestRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterAccess(Duration.ofMillis(properties.getIdleTtlMs()))
+                .build();
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key} on {@code route}.
+     *
+     * @param keyType what the key is, e.g. {@code user} or {@code ip}; used as a metric tag instead of the key itself
+     * @throws RateLimitExceededException if the bucket is empty
+     */
+    public void acquire(String route, String keyType, String key) {
+        RateLimitProperties.Limit limit = properties.getRoutes().get(route);
+        if (!properties.isEnabled() || limit == null) {
+            return;
+        }
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRefillPerSecond());
+        long burst = interval * limit.getCapacity();
+        AtomicLong fullAt = buckets.get(route + ':' + keyType + ':' + key, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long waitNanos = next - burst - now;
+            if (waitNanos > 0) {
+                meterRegistry.counter("rate.limit.rejections", "route", route, "key", keyType).increment();
+                throw new RateLimitExceededException("Too many requests, please retry later.",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Keeps the current {@code users.token_version} per user in memory. A token whose version claim
+ * is older than this value was issued before a role change and is rejected.
+ */
+@Component
+public class TokenVersionService {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Optional<Integer>> versions;
+
+    public TokenVersionService(UserRepository userRepository,
+                               @Value("${app.jwt.token-version-cache.max-size:10000}") long maxSize,
+                               @Value("${app.jwt.token-version-cache.ttl-ms:30000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Optional<Integer> current = versions.get(userId, userRepository::findTokenVersionById);
+        return current.isPresent() && current.get() == tokenVersion;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        versions.invalidate(event.userId());
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AsyncTransferStatus;
+import com.example.bankcards.dto.AsyncTransferStatusDto;
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.BatchTransferItemStatus;
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts transfers into a bounded in-memory queue and applies them in groups: each worker takes whatever has
+ * queued up (up to {@code max-batch-size}, waiting at most {@code max-wait-ms} for more) and commits it with
+ * {@link CardService#transferGroup}, so one transaction and one lock round trip serve many transfers.
+ * If a group transaction fails, its transfers are retried one by one so a single bad row cannot fail the others.
+ * Results are kept on this instance for {@code result-ttl-ms}, at most {@code result-max-size} of them, and can be
+ * polled by request id.
+ */
+@Service
+public class AsyncTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferService.class);
+
+    private final CardService cardService;
+    private final BlockingQueue<QueuedTransfer> queue;
+    private final Cache<String, QueuedTransfer> requests;
+    private final int workers;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long shutdownTimeoutMs;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public AsyncTransferService(CardService cardService,
+                                @Value("${app.transfer.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${app.transfer.async.workers:2}") int workers,
+                                @Value("${app.transfer.async.max-batch-size:100}") int maxBatchSize,
+                                @Value("${app.transfer.async.max-wait-ms:2}") long maxWaitMs,
+                                @Value("${app.transfer.async.result-ttl-ms:600000}") long resultTtlMs,
+                                @Value("${app.transfer.async.result-max-size:100000}") long resultMaxSize,
+                                @Value("${app.transfer.async.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.cardService = cardService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.requests = Caffeine.newBuilder()
+                .maximumSize(resultMaxSize)
+                .expireAfterWrite(Duration.ofMillis(resultTtlMs))
+                .build();
+        this.workers = workers;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "transfer-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+        QueuedTransfer transfer;
+        while ((transfer = queue.poll()) != null) {
+            transfer.result().completeExceptionally(new IllegalStateException("Transfer was not processed before shutdown."));
+        }
+    }
+
+    public Submission submit(CardTransferRequestDto requestDto, String username) {
+        QueuedTransfer transfer = new QueuedTransfer(UUID.randomUUID().toString(), requestDto, username,
+                new CompletableFuture<>());
+        requests.put(transfer.requestId(), transfer);
+        if (!running || !queue.offer(transfer)) {
+            requests.invalidate(transfer.requestId());
+            throw new TransferQueueFullException("Transfer queue is full, retry later.");
+        }
+        return new Submission(transfer.requestId(), transfer.result());
+    }
+
+    public Optional<AsyncTransferStatusDto> getStatus(String requestId, String username) {
+        return Optional.ofNullable(requests.getIfPresent(requestId))
+                .filter(transfer -> transfer.username().equals(username))
+                .map(AsyncTransferService::toStatus);
+    }
+
+    private void drain() {
+        List<QueuedTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<QueuedTransfer> batch) {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            try {
+                QueuedTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void process(List<QueuedTransfer> batch) {
+        List<CardTransferRequestDto> transfers = new ArrayList<>(batch.size());
+        List<String> usernames = new ArrayList<>(batch.size());
+        for (QueuedTransfer transfer : batch) {
+            transfers.add(transfer.request());
+            usernames.add(transfer.username());
+        }
+
+        List<BatchTransferItemResultDto> results;
+        try {
+            results = cardService.transferGroup(transfers, usernames);
+        } catch (RuntimeException ex) {
+            log.warn("Transfer group of {} failed, applying transfers one by one", batch.size(), ex);
+            batch.forEach(this::processOne);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            QueuedTransfer transfer = batch.get(i);
+            BatchTransferItemResultDto result = results.get(i);
+            if (result.getStatus() == BatchTransferItemStatus.SUCCEEDED) {
+                transfer.result().complete(toResponse(transfer, result.getTransferId()));
+            } else {
+                transfer.result().completeExceptionally(new IllegalStateException(result.getError()));
+            }
+        }
+    }
+
+    private void processOne(QueuedTransfer transfer) {
+        try {
+            String transferId = cardService.transferBetweenCards(transfer.request(), transfer.username());
+            transfer.result().complete(toResponse(transfer, transferId));
+        } catch (RuntimeException ex) {
+            transfer.result().completeExceptionally(ex);
+        }
+    }
+
+    private static TransferResponseDto toResponse(QueuedTransfer transfer, String transferId) {
+        CardTransferRequestDto request = transfer.request();
+        return new TransferResponseDto(transferId, request.getFromCardId(), request.getToCardId(), request.getAmount());
+    }
+
+    private static AsyncTransferStatusDto toStatus(QueuedTransfer transfer) {
+        CardTransferRequestDto request = transfer.request();
+        CompletableFuture<TransferResponseDto> result = transfer.result();
+        AsyncTransferStatus status = AsyncTransferStatus.PENDING;
+        String transferId = null;
+        String error = null;
+        if (result.isDone()) {
+            try {
+                transferId = result.join().getTransferId();
+                status = AsyncTransferStatus.SUCCEEDED;
+            } catch (CompletionException | CancellationException ex) {
+                status = AsyncTransferStatus.FAILED;
+                error = ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage();
+            }
+        }
+        return new AsyncTransferStatusDto(transfer.requestId(), status, transferId, request.getFromCardId(),
+                request.getToCardId(), request.getAmount(), error);
+    }
+
+    public record Submission(String requestId, CompletableFuture<TransferResponseDto> result) {
+    }
+
+    private record QueuedTransfer(String requestId, CardTransferRequestDto request, String username,
+                                  CompletableFuture<TransferResponseDto> result) {
+    }
+}
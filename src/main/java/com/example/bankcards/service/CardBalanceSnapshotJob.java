@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Folds {@code card_ledger} entries into the {@code cards.balance} snapshot and moves
+ * {@code cards.ledger_position} forward, so the current-balance query only has to sum recent entries.
+ * Ledger rows are kept as the audit trail. Striped cards keep their balance in stripes and are skipped.
+ */
+@Component
+public class CardBalanceSnapshotJob {
+
+    private static final String SELECT_PENDING_SQL = """
+            SELECT c.id
+            FROM cards c
+            WHERE c.id > ?
+              AND c.stripe_count = 1
+              AND EXISTS (SELECT 1 FROM card_ledger l WHERE l.card_id = c.id AND l.id > c.ledger_position)
+            ORDER BY c.id
+            LIMIT ?""";
+
+    // The row lock waits for in-flight transfers on this card, which hold at least a shared lock on it,
+    // so no entry below the new ledger_position can still be uncommitted.
+    private static final String LOCK_CARD_SQL = "SELECT ledger_position FROM cards WHERE id = ? FOR UPDATE";
+
+    private static final String SUM_ENTRIES_SQL = """
+            SELECT COALESCE(SUM(amount), 0) AS delta, MAX(id) AS last_id
+            FROM card_ledger
+            WHERE card_id = ? AND id > ?""";
+
+    private static final String UPDATE_SNAPSHOT_SQL =
+            "UPDATE cards SET balance = balance + ?, ledger_position = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CardBalanceSnapshotJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  @Value("${app.ledger.snapshot.enabled:true}") boolean enabled,
+                                  @Value("${app.ledger.snapshot.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.snapshot.interval-ms:60000}",
+            initialDelayString = "${app.ledger.snapshot.interval-ms:60000}")
+    public void snapshotOnSchedule() {
+        if (enabled) {
+            snapshotAll();
+        }
+    }
+
+    public long snapshotAll() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long lastId = 0;
+            long updated = 0;
+            while (true) {
+                List<Long> cardIds = jdbcTemplate.queryForList(SELECT_PENDING_SQL, Long.class, lastId, batchSize);
+                for (Long cardId : cardIds) {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> snapshot(cardId)))) {
+                        updated++;
+                    }
+                }
+                if (cardIds.size() < batchSize) {
+                    return updated;
+                }
+                lastId = cardIds.get(cardIds.size() - 1);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private boolean snapshot(long cardId) {
+        List<Long> position = jdbcTemplate.queryForList(LOCK_CARD_SQL, Long.class, cardId);
+        if (position.isEmpty()) {
+            return false;
+        }
+
+        Map<String, Object> entries = jdbcTemplate.queryForMap(SUM_ENTRIES_SQL, cardId, position.get(0));
+        Number lastEntryId = (Number) entries.get("last_id");
+        if (lastEntryId == null) {
+            return false;
+        }
+
+        BigDecimal delta = (BigDecimal) entries.get("delta");
+        return jdbcTemplate.update(UPDATE_SNAPSHOT_SQL, delta, lastEntryId.longValue(), cardId) > 0;
+    }
+}
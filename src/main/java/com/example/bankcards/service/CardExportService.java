@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardFileFormat;
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes every matching card to the output as NDJSON or CSV while rows are still being read, so memory use
+ * does not depend on the number of cards. Numbers are masked by {@link CardMapper} as in the API responses.
+ */
+@Service
+public class CardExportService {
+
+    private static final String CSV_HEADER = "id,cardNumberMasked,expiryDate,status,balance,userId,username";
+
+    private final CardService cardService;
+    private final CardMapper cardMapper;
+    private final ObjectMapper objectMapper;
+
+    public CardExportService(CardService cardService, CardMapper cardMapper, ObjectMapper objectMapper) {
+        this.cardService = cardService;
+        this.cardMapper = cardMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(OutputStream outputStream, CardFileFormat format, Long userId, CardStatus status)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == CardFileFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            cardService.exportCards(userId, status, card -> {
+                try {
+                    writeRow(writer, format, cardMapper.toDto(card));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeRow(Writer writer, CardFileFormat format, CardResponseDto card) throws IOException {
+        if (format == CardFileFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(card));
+        } else {
+            writer.write(String.join(",",
+                    String.valueOf(card.getId()),
+                    card.getCardNumberMasked(),
+                    String.valueOf(card.getExpiryDate()),
+                    String.valueOf(card.getStatus()),
+                    card.getBalance() == null ? "" : card.getBalance().toPlainString(),
+                    String.valueOf(card.getUserId()),
+                    csvField(card.getUsername())));
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
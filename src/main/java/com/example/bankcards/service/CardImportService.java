@@ -0,0 +1,261 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardFileFormat;
+import com.example.bankcards.dto.CardImportErrorDto;
+import com.example.bankcards.dto.CardImportResultDto;
+import com.example.bankcards.dto.CreateCardRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CryptoEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Issues cards from an uploaded CSV or NDJSON file. The input is read line by line and handled in chunks:
+ * each chunk checks card numbers and owners with one query apiece and is inserted as a JDBC batch in its own
+ * transaction, so memory and transaction size stay bounded however long the file is. Rows that fail are
+ * reported by line number and do not stop the rest of the import. The persistence context is cleared after every
+ * chunk, because with open-in-view the chunk transactions share the request's EntityManager.
+ */
+@Service
+public class CardImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardImportService.class);
+
+    private static final List<String> CSV_COLUMNS = List.of("cardNumber", "expiryDate", "userId");
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final CryptoEngine cryptoEngine;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public CardImportService(CardRepository cardRepository, UserRepository userRepository, CryptoEngine cryptoEngine,
+                             Validator validator, ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+                             EntityManager entityManager, ApplicationEventPublisher eventPublisher,
+                             @Value("${app.import.chunk-size:500}") int chunkSize,
+                             @Value("${app.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.cryptoEngine = cryptoEngine;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public CardImportResultDto importCards(InputStream inputStream, CardFileFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        CardImportResultDto result = new CardImportResultDto();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        long lineNumber = 0;
+        int[] csvColumns = null;
+        if (format == CardFileFormat.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                return result;
+            }
+            csvColumns = csvColumns(header);
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            CreateCardRequestDto request;
+            try {
+                request = format == CardFileFormat.CSV ? parseCsv(line, csvColumns) : parseJson(line);
+            } catch (IllegalArgumentException e) {
+                addError(result, lineNumber, e.getMessage());
+                continue;
+            }
+            Set<ConstraintViolation<CreateCardRequestDto>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                addError(result, lineNumber, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            chunk.add(new ImportRow(lineNumber, request));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result);
+        }
+
+        log.info("Card import finished: {} imported, {} failed", result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private void importChunk(List<ImportRow> rows, CardImportResultDto result) {
+        ChunkOutcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> insertChunk(rows));
+        } catch (DataIntegrityViolationException e) {
+            // Another writer took one of the numbers after the duplicate check; re-running the chunk reports it.
+            try {
+                outcome = transactionTemplate.execute(status -> insertChunk(rows));
+            } catch (DataIntegrityViolationException retryFailure) {
+                log.warn("Card import chunk starting at line {} failed twice", rows.get(0).line(), retryFailure);
+                rows.forEach(row -> addError(result, row.line(), "Card could not be saved, please retry."));
+                return;
+            }
+        }
+        result.setImported(result.getImported() + outcome.imported());
+        outcome.errors().forEach(error -> addError(result, error.getLine(), error.getError()));
+    }
+
+    private ChunkOutcome insertChunk(List<ImportRow> rows) {
+        List<CardImportErrorDto> errors = new ArrayList<>();
+        Map<String, ImportRow> rowsByHash = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            String cardNumberHash = cryptoEngine.blindIndex(row.request().getCardNumber());
+            ImportRow first = rowsByHash.putIfAbsent(cardNumberHash, row);
+            if (first != null) {
+                errors.add(new CardImportErrorDto(row.line(),
+                        "Card number is already used on line " + first.line() + "."));
+            }
+        }
+
+        Set<String> existingHashes = new HashSet<>(cardRepository.findExistingCardNumberHashes(rowsByHash.keySet()));
+        Set<Long> existingUserIds = new HashSet<>(userRepository.findExistingIds(
+                rowsByHash.values().stream().map(row -> row.request().getUserId()).collect(Collectors.toSet())));
+
+        List<Card> cards = new ArrayList<>(rowsByHash.size());
+        for (Map.Entry<String, ImportRow> entry : rowsByHash.entrySet()) {
+            ImportRow row = entry.getValue();
+            CreateCardRequestDto request = row.request();
+            if (existingHashes.contains(entry.getKey())) {
+                errors.add(new CardImportErrorDto(row.line(),
+                        "Card ending with " + lastDigits(request.getCardNumber()) + " already exists."));
+            } else if (!existingUserIds.contains(request.getUserId())) {
+                errors.add(new CardImportErrorDto(row.line(), "User with ID " + request.getUserId() + " not found."));
+            } else {
+                Card card = new Card();
+                card.setCardNumber(request.getCardNumber());
+                card.setCardNumberHash(entry.getKey());
+                card.setExpiryDate(request.getExpiryDate());
+                card.setUser(userRepository.getReferenceById(request.getUserId()));
+                card.setBalance(BigDecimal.ZERO);
+                card.setStatus(CardStatus.ACTIVE);
+                cards.add(card);
+            }
+        }
+
+        cardRepository.saveAll(cards);
+        cardRepository.flush();
+        Set<Long> ownerIds = cards.stream().map(card -> card.getUser().getId()).collect(Collectors.toSet());
+        // A commit does not clear a request-scoped EntityManager, so saved cards would otherwise stay managed
+        // and be dirty-checked again by every later chunk.
+        entityManager.clear();
+        if (!ownerIds.isEmpty()) {
+            eventPublisher.publishEvent(new CardsChangedEvent(ownerIds));
+        }
+        errors.sort(Comparator.comparingLong(CardImportErrorDto::getLine));
+        return new ChunkOutcome(cards.size(), errors);
+    }
+
+    private CreateCardRequestDto parseCsv(String line, int[] columns) {
+        String[] values = line.split(",", -1);
+        if (values.length != CSV_COLUMNS.size()) {
+            throw new IllegalArgumentException("Expected " + CSV_COLUMNS.size() + " columns, got " + values.length + ".");
+        }
+        CreateCardRequestDto request = new CreateCardRequestDto();
+        String cardNumber = values[columns[0]].trim();
+        String expiryDate = values[columns[1]].trim();
+        String userId = values[columns[2]].trim();
+        request.setCardNumber(cardNumber.isEmpty() ? null : cardNumber);
+        try {
+            request.setExpiryDate(expiryDate.isEmpty() ? null : LocalDate.parse(expiryDate));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expiry date must be in yyyy-MM-dd format.");
+        }
+        try {
+            request.setUserId(userId.isEmpty() ? null : Long.valueOf(userId));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("User ID must be a number.");
+        }
+        return request;
+    }
+
+    private CreateCardRequestDto parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, CreateCardRequestDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON line.");
+        }
+    }
+
+    private static int[] csvColumns(String header) {
+        List<String> names = Arrays.stream(header.replace("\uFEFF", "").split(",", -1)).map(String::trim).toList();
+        if (names.size() != CSV_COLUMNS.size() || !new HashSet<>(names).containsAll(CSV_COLUMNS)) {
+            throw new IllegalArgumentException("CSV header must contain the columns " + String.join(",", CSV_COLUMNS) + ".");
+        }
+        return CSV_COLUMNS.stream().mapToInt(names::indexOf).toArray();
+    }
+
+    private void addError(CardImportResultDto result, long line, String error) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new CardImportErrorDto(line, error));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static String lastDigits(String cardNumber) {
+        return cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    private record ImportRow(long line, CreateCardRequestDto request) {
+    }
+
+    private record ChunkOutcome(int imported, List<CardImportErrorDto> errors) {
+    }
+}
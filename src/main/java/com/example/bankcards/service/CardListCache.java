@@ -0,0 +1,53 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.entity.CardStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Mapped card-list pages per user, card set version, status filter and page request. A committed card change
+ * bumps the owner's version (see {@link CardSetVersionService}), so that user's old pages are never served
+ * again and age out of the bounded cache. The version must be read before the page is loaded, so a page is
+ * never older than the version it is stored under.
+ */
+@Component
+public class CardListCache {
+
+    private final Cache pages;
+    private final Timer hitAge;
+
+    public CardListCache(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.pages = cacheManager.getCache(CacheConfig.CARD_PAGES_CACHE);
+        this.hitAge = Timer.builder("cards.list.cache.hit.age")
+                .description("Age of card-list pages when served from the cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public Page<CardResponseDto> getPage(Long userId, long version, CardStatus status, Pageable pageable,
+                                         Supplier<Page<CardResponseDto>> loader) {
+        long requestedAt = System.nanoTime();
+        CachedPage cached = pages.get(new PageKey(userId, version, status, pageable),
+                () -> new CachedPage(loader.get(), System.nanoTime()));
+        if (cached.loadedAt() < requestedAt) {
+            hitAge.record(Duration.ofNanos(requestedAt - cached.loadedAt()));
+        }
+        return cached.page();
+    }
+
+    private record PageKey(Long userId, long version, CardStatus status, Pageable pageable) {
+    }
+
+    private record CachedPage(Page<CardResponseDto> page, long loadedAt) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.util.CryptoEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites {@code cards.card_number} with the active key version and fills a missing blind index.
+ * Rows are read in keyset-paged batches, written with one JDBC batch per page and a pause between
+ * pages, so the job can walk a large table while regular traffic keeps running.
+ */
+@Component
+public class CardReencryptionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CardReencryptionJob.class);
+
+    private static final String SELECT_BATCH_SQL = """
+            SELECT id, card_number, card_number_hash
+            FROM cards
+            WHERE id > ? AND (card_number NOT LIKE ? OR card_number_hash IS NULL)
+            ORDER BY id
+            LIMIT ?""";
+
+    // The card_number guard skips rows the application has rewritten since the batch was read.
+    private static final String UPDATE_SQL =
+            "UPDATE cards SET card_number = ?, card_number_hash = ? WHERE id = ? AND card_number = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CryptoEngine cryptoEngine;
+    private final CryptoProperties.Reencryption settings;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CardReencryptionJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               CryptoEngine cryptoEngine, CryptoProperties cryptoProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cryptoEngine = cryptoEngine;
+        this.settings = cryptoProperties.getReencryption();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reencryptOnStartup() {
+        if (settings.isEnabled()) {
+            reencryptAll();
+        }
+    }
+
+    public long reencryptAll() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Card re-encryption is already running");
+            return 0;
+        }
+        try {
+            String activeKeyPattern = cryptoEngine.activeKeyPrefix() + "%";
+            long lastId = 0;
+            long updated = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<CardCiphertext> batch = jdbcTemplate.query(SELECT_BATCH_SQL,
+                        (rs, rowNum) -> new CardCiphertext(rs.getLong("id"), rs.getString("card_number"),
+                                rs.getString("card_number_hash")),
+                        lastId, activeKeyPattern, settings.getBatchSize());
+                if (batch.isEmpty()) {
+                    break;
+                }
+                updated += rewrite(batch);
+                lastId = batch.get(batch.size() - 1).id();
+                if (batch.size() < settings.getBatchSize() || !pause()) {
+                    break;
+                }
+            }
+            if (updated > 0) {
+                log.info("Re-encrypted {} cards with key version prefix {}", updated, cryptoEngine.activeKeyPrefix());
+            }
+            return updated;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int rewrite(List<CardCiphertext> batch) {
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        for (CardCiphertext row : batch) {
+            try {
+                String plaintext = cryptoEngine.decrypt(row.cardNumber());
+                String cardNumber = cryptoEngine.isEncryptedWithActiveKey(row.cardNumber())
+                        ? row.cardNumber()
+                        : cryptoEngine.encrypt(plaintext);
+                String cardNumberHash = row.cardNumberHash() != null
+                        ? row.cardNumberHash()
+                        : cryptoEngine.blindIndex(plaintext);
+                updates.add(new Object[]{cardNumber, cardNumberHash, row.id(), row.cardNumber()});
+            } catch (IllegalStateException e) {
+                log.warn("Skipping card {}: {}", row.id(), e.getMessage());
+            }
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
+
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, updates));
+        int updated = 0;
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private boolean pause() {
+        if (settings.getPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(settings.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record CardCiphertext(long id, String cardNumber, String cardNumberHash) {
+    }
+}
@@ -1,24 +1,51 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResponseDto;
 import com.example.bankcards.dto.CardTransferRequestDto;
 import com.example.bankcards.dto.CreateCardRequestDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface CardService {
     Card createCard(CreateCardRequestDto requestDto);
 
-    Page<Card> getCardsByUserId(Long userId, CardStatus cardStatus, Pageable pageable);
+    Page<CardView> getCardsByUserId(Long userId, CardStatus cardStatus, Pageable pageable);
+
+    Window<CardView> scrollCardsByUserId(Long userId, CardStatus cardStatus, String cursor, int size);
 
     Card blockCard(Long cardId, String username);
 
     Card updateCardStatusByAdmin(Long cardId, CardStatus newStatus);
 
-    void transferBetweenCards(CardTransferRequestDto requestDto, String username);
+    String transferBetweenCards(CardTransferRequestDto requestDto, String username);
+
+    BatchTransferResponseDto transferBatch(BatchTransferRequestDto requestDto, String username);
+
+    /**
+     * Applies transfers of different users in one transaction; usernames.get(i) must own transfers.get(i).
+     * Invalid transfers are reported and skipped, the rest are applied.
+     */
+    List<BatchTransferItemResultDto> transferGroup(List<CardTransferRequestDto> transfers, List<String> usernames);
+
+    Card updateBalanceStripes(Long cardId, int stripeCount);
+
+    Page<CardView> getAllCards(Long userId, CardStatus status, Pageable pageable);
+
+    Window<CardView> scrollAllCards(Long userId, CardStatus status, String cursor, int size);
 
-    Page<Card> getAllCards(Long userId, CardStatus status, Pageable pageable);
+    /**
+     * Passes every matching card to the consumer in id order while the rows are being read.
+     */
+    void exportCards(Long userId, CardStatus status, Consumer<CardView> consumer);
 
     void deleteCard(Long cardId);
 }
\ No newline at end of file
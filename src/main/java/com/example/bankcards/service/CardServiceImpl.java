@@ -1,42 +1,100 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.BatchTransferItemStatus;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResponseDto;
 import com.example.bankcards.dto.CardTransferRequestDto;
 import com.example.bankcards.dto.CreateCardRequestDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardAlreadyExistsException;
+import com.example.bankcards.exception.CardNotActiveException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardBalanceStripeRepository.StripeDelta;
+import com.example.bankcards.repository.CardLedgerRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.repository.specifications.CardSpecifications;
+import com.example.bankcards.util.CryptoEngine;
+import com.example.bankcards.util.ScrollCursor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "cards.service", description = "CardService method latency", histogram = true)
 public class CardServiceImpl implements CardService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
+    private static final String TRANSFERS_METRIC = "cards.transfers";
+    private static final List<String> TRANSFER_OUTCOMES = List.of(
+            "success", "insufficient_funds", "card_not_active", "access_denied", "card_not_found", "invalid");
+
     private final CardRepository cardRepository;
+    private final CardLedgerRepository cardLedgerRepository;
+    private final CardBalanceStripeRepository stripeRepository;
     private final UserRepository userRepository;
-
-    public CardServiceImpl(CardRepository cardRepository, UserRepository userRepository) {
+    private final CryptoEngine cryptoEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    public CardServiceImpl(CardRepository cardRepository, CardLedgerRepository cardLedgerRepository,
+                           CardBalanceStripeRepository stripeRepository, UserRepository userRepository,
+                           CryptoEngine cryptoEngine, ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry) {
         this.cardRepository = cardRepository;
+        this.cardLedgerRepository = cardLedgerRepository;
+        this.stripeRepository = stripeRepository;
         this.userRepository = userRepository;
+        this.cryptoEngine = cryptoEngine;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        TRANSFER_OUTCOMES.forEach(this::transferCounter);
     }
 
     @Override
     @Transactional
     public Card createCard(CreateCardRequestDto requestDto) {
-        if (cardRepository.existsByCardNumber(requestDto.getCardNumber())) {
+        String cardNumberHash = cryptoEngine.blindIndex(requestDto.getCardNumber());
+        if (cardRepository.existsByCardNumberHash(cardNumberHash)) {
             throw new CardAlreadyExistsException("Card with number " + requestDto.getCardNumber() + " already exists.");
         }
 
@@ -45,18 +103,21 @@ public class CardServiceImpl implements CardService {
 
         Card newCard = new Card();
         newCard.setCardNumber(requestDto.getCardNumber());
+        newCard.setCardNumberHash(cardNumberHash);
         newCard.setExpiryDate(requestDto.getExpiryDate());
         newCard.setUser(user);
 
         newCard.setBalance(BigDecimal.ZERO);
         newCard.setStatus(CardStatus.ACTIVE);
 
-        return cardRepository.save(newCard);
+        Card savedCard = cardRepository.save(newCard);
+        eventPublisher.publishEvent(new CardsChangedEvent(Set.of(user.getId())));
+        return savedCard;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Card> getCardsByUserId(Long userId, CardStatus status, Pageable pageable) {
+    public Page<CardView> getCardsByUserId(Long userId, CardStatus status, Pageable pageable) {
 
         List<Specification<Card>> specs = new ArrayList<>();
 
@@ -68,7 +129,14 @@ public class CardServiceImpl implements CardService {
 
         Specification<Card> finalSpec = Specification.allOf(specs);
 
-        return cardRepository.findAll(finalSpec, pageable);
+        return cardRepository.findViews(finalSpec, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<CardView> scrollCardsByUserId(Long userId, CardStatus status, String cursor, int size) {
+        return scroll(Specification.allOf(CardSpecifications.hasUserId(userId), CardSpecifications.hasStatus(status)),
+                cursor, size);
     }
 
     @Override
@@ -86,7 +154,9 @@ public class CardServiceImpl implements CardService {
         }
 
         card.setStatus(CardStatus.BLOCKED);
-        return cardRepository.save(card);
+        Card savedCard = cardRepository.save(card);
+        eventPublisher.publishEvent(new CardsChangedEvent(Set.of(card.getUser().getId())));
+        return savedCard;
     }
 
     @Override
@@ -97,12 +167,25 @@ public class CardServiceImpl implements CardService {
 
         card.setStatus(newStatus);
 
-        return cardRepository.save(card);
+        Card savedCard = cardRepository.save(card);
+        eventPublisher.publishEvent(new CardsChangedEvent(Set.of(card.getUser().getId())));
+        return savedCard;
     }
 
     @Override
     @Transactional
-    public void transferBetweenCards(CardTransferRequestDto requestDto, String username) {
+    public String transferBetweenCards(CardTransferRequestDto requestDto, String username) {
+        try {
+            String transferId = transfer(requestDto, username);
+            countTransfersAfterCommit(Map.of("success", 1));
+            return transferId;
+        } catch (RuntimeException ex) {
+            transferCounter(transferOutcome(ex)).increment();
+            throw ex;
+        }
+    }
+
+    private String transfer(CardTransferRequestDto requestDto, String username) {
         Long fromCardId = requestDto.getFromCardId();
         Long toCardId = requestDto.getToCardId();
         BigDecimal amount = requestDto.getAmount();
@@ -111,33 +194,288 @@ public class CardServiceImpl implements CardService {
             throw new IllegalArgumentException("Source and destination cards cannot be the same.");
         }
 
-        Card sourceCard = cardRepository.findById(fromCardId)
-                .orElseThrow(() -> new CardNotFoundException("Source card with ID " + fromCardId + " not found."));
-        Card destinationCard = cardRepository.findById(toCardId)
-                .orElseThrow(() -> new CardNotFoundException("Destination card with ID " + toCardId + " not found."));
+        // Both rows are locked in ascending id order, so opposite transfers between the same cards
+        // wait for each other instead of deadlocking. The destination only receives a ledger insert, so a
+        // shared lock is enough there; it still keeps the snapshot job away until this transfer commits.
+        Card sourceCard;
+        Card destinationCard;
+        if (fromCardId < toCardId) {
+            sourceCard = lockSourceCard(fromCardId);
+            destinationCard = lockDestinationCard(toCardId);
+        } else {
+            destinationCard = lockDestinationCard(toCardId);
+            sourceCard = lockSourceCard(fromCardId);
+        }
+
+        checkTransferAllowed(sourceCard, destinationCard, username);
+        if (!sourceCard.isStriped()) {
+            checkSufficientFunds(cardRepository.findCurrentBalance(fromCardId), amount);
+        }
+
+        // Stripe rows are also touched in ascending card id order, after both card locks are held.
+        if (fromCardId < toCardId) {
+            debitStripe(sourceCard, amount);
+            creditStripe(destinationCard, amount);
+        } else {
+            creditStripe(destinationCard, amount);
+            debitStripe(sourceCard, amount);
+        }
+
+        String transferId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        cardLedgerRepository.saveAll(List.of(
+                new CardLedgerEntry(sourceCard, transferId, amount.negate(), now),
+                new CardLedgerEntry(destinationCard, transferId, amount, now)));
+        eventPublisher.publishEvent(new CardsChangedEvent(
+                Set.copyOf(List.of(sourceCard.getUser().getId(), destinationCard.getUser().getId()))));
+        return transferId;
+    }
+
+    @Override
+    @Transactional
+    public BatchTransferResponseDto transferBatch(BatchTransferRequestDto requestDto, String username) {
+        List<CardTransferRequestDto> transfers = requestDto.getTransfers();
+        List<BatchTransferItemResultDto> results = applyTransfers(transfers,
+                Collections.nCopies(transfers.size(), username), requestDto.getMode() == BatchTransferMode.ATOMIC);
+        return new BatchTransferResponseDto(requestDto.getMode(), results);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchTransferItemResultDto> transferGroup(List<CardTransferRequestDto> transfers, List<String> usernames) {
+        return applyTransfers(transfers, usernames, false);
+    }
+
+    private List<BatchTransferItemResultDto> applyTransfers(List<CardTransferRequestDto> transfers,
+                                                            List<String> usernames, boolean atomic) {
+        Set<Long> cardIds = new TreeSet<>();
+        for (CardTransferRequestDto transfer : transfers) {
+            cardIds.add(transfer.getFromCardId());
+            cardIds.add(transfer.getToCardId());
+        }
+
+        // One locking query for every card in the batch, in ascending id order, then one balance query.
+        Map<Long, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (!cards.isEmpty()) {
+            for (CardRepository.CardBalanceView view : cardRepository.findCurrentBalances(cards.keySet())) {
+                balances.put(view.getId(), view.getBalance());
+            }
+        }
+        // Every card is locked exclusively, so stripe balances can be tracked in memory and written once.
+        Map<Long, BigDecimal[]> stripes = stripeRepository.findStripes(
+                cards.values().stream().filter(Card::isStriped).map(Card::getId).toList());
+        Map<StripeKey, BigDecimal> stripeDeltas = new TreeMap<>(
+                Comparator.comparingLong(StripeKey::cardId).thenComparingInt(StripeKey::stripeNo));
+
+        List<BatchTransferItemResultDto> results = new ArrayList<>(transfers.size());
+        List<CardLedgerEntry> entries = new ArrayList<>(transfers.size() * 2);
+        Map<String, Integer> outcomes = new HashMap<>();
+        Instant now = Instant.now();
+        boolean anyFailed = false;
+
+        for (int index = 0; index < transfers.size(); index++) {
+            CardTransferRequestDto transfer = transfers.get(index);
+            try {
+                Card sourceCard = batchCard(cards, transfer.getFromCardId(), "Source");
+                Card destinationCard = batchCard(cards, transfer.getToCardId(), "Destination");
+                if (sourceCard.equals(destinationCard)) {
+                    throw new IllegalArgumentException("Source and destination cards cannot be the same.");
+                }
+                checkTransferAllowed(sourceCard, destinationCard, usernames.get(index));
+                BigDecimal[] sourceStripes = stripes.get(sourceCard.getId());
+                if (sourceStripes != null) {
+                    debitStripes(stripes, stripeDeltas, sourceCard.getId(), transfer.getAmount());
+                } else {
+                    checkSufficientFunds(balances.get(sourceCard.getId()), transfer.getAmount());
+                }
+                BigDecimal[] destinationStripes = stripes.get(destinationCard.getId());
+                if (destinationStripes != null) {
+                    addStripeDelta(stripes, stripeDeltas, destinationCard.getId(),
+                            ThreadLocalRandom.current().nextInt(destinationStripes.length), transfer.getAmount());
+                }
+                balances.merge(sourceCard.getId(), transfer.getAmount().negate(), BigDecimal::add);
+                balances.merge(destinationCard.getId(), transfer.getAmount(), BigDecimal::add);
+
+                String transferId = UUID.randomUUID().toString();
+                entries.add(new CardLedgerEntry(sourceCard, transferId, transfer.getAmount().negate(), now));
+                entries.add(new CardLedgerEntry(destinationCard, transferId, transfer.getAmount(), now));
+                results.add(new BatchTransferItemResultDto(index, BatchTransferItemStatus.SUCCEEDED, transferId, null));
+            } catch (CardNotFoundException | AccessDeniedException | IllegalStateException | IllegalArgumentException ex) {
+                outcomes.merge(transferOutcome(ex), 1, Integer::sum);
+                anyFailed = true;
+                results.add(new BatchTransferItemResultDto(index, BatchTransferItemStatus.FAILED, null, ex.getMessage()));
+            }
+        }
+
+        // Nothing has been written yet, so an atomic batch with a failed item only has to report it.
+        if (anyFailed && atomic) {
+            for (BatchTransferItemResultDto result : results) {
+                if (result.getStatus() == BatchTransferItemStatus.SUCCEEDED) {
+                    result.setStatus(BatchTransferItemStatus.NOT_APPLIED);
+                    result.setTransferId(null);
+                }
+            }
+            countTransfersAfterCommit(outcomes);
+            return results;
+        }
+
+        if (!stripeDeltas.isEmpty()) {
+            List<StripeDelta> deltas = new ArrayList<>(stripeDeltas.size());
+            stripeDeltas.forEach((key, amount) -> deltas.add(new StripeDelta(key.cardId(), key.stripeNo(), amount)));
+            stripeRepository.applyDeltas(deltas);
+        }
+        outcomes.merge("success", entries.size() / 2, Integer::sum);
+        countTransfersAfterCommit(outcomes);
+        if (!entries.isEmpty()) {
+            cardLedgerRepository.insertAll(entries);
+            Set<Long> owners = new HashSet<>();
+            entries.forEach(entry -> owners.add(entry.getCard().getUser().getId()));
+            eventPublisher.publishEvent(new CardsChangedEvent(owners));
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public Card updateBalanceStripes(Long cardId, int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be at least 1.");
+        }
+
+        // The exclusive lock waits for in-flight transfers, which hold at least a shared lock on the card.
+        cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found."));
+        BigDecimal balance = cardRepository.findCurrentBalance(cardId);
+
+        stripeRepository.deleteAll(cardId);
+        if (stripeCount > 1) {
+            stripeRepository.replace(cardId, stripeCount, balance);
+        }
+        cardRepository.updateBalanceMode(cardId, stripeCount > 1 ? BigDecimal.ZERO : balance, stripeCount);
+
+        return cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found."));
+    }
+
+    private void debitStripe(Card card, BigDecimal amount) {
+        if (card.isStriped() && !stripeRepository.debit(card.getId(), amount)) {
+            throw new InsufficientFundsException("Insufficient funds on the source card.");
+        }
+    }
+
+    private void creditStripe(Card card, BigDecimal amount) {
+        if (card.isStriped()) {
+            stripeRepository.credit(card.getId(), card.getStripeCount(), amount);
+        }
+    }
+
+    // Drains the stripes in stripe order, the same way CardBalanceStripeRepository.debit does.
+    private static void debitStripes(Map<Long, BigDecimal[]> stripes, Map<StripeKey, BigDecimal> deltas,
+                                     long cardId, BigDecimal amount) {
+        BigDecimal[] balances = stripes.get(cardId);
+        BigDecimal total = Arrays.stream(balances).reduce(BigDecimal.ZERO, BigDecimal::add);
+        checkSufficientFunds(total, amount);
+        BigDecimal remaining = amount;
+        for (int stripeNo = 0; stripeNo < balances.length && remaining.signum() > 0; stripeNo++) {
+            if (balances[stripeNo].signum() > 0) {
+                BigDecimal part = balances[stripeNo].min(remaining);
+                addStripeDelta(stripes, deltas, cardId, stripeNo, part.negate());
+                remaining = remaining.subtract(part);
+            }
+        }
+    }
+
+    private static void addStripeDelta(Map<Long, BigDecimal[]> stripes, Map<StripeKey, BigDecimal> deltas,
+                                       long cardId, int stripeNo, BigDecimal amount) {
+        BigDecimal[] balances = stripes.get(cardId);
+        balances[stripeNo] = balances[stripeNo].add(amount);
+        deltas.merge(new StripeKey(cardId, stripeNo), amount, BigDecimal::add);
+    }
+
+    private record StripeKey(long cardId, int stripeNo) {
+    }
+
+    private Counter transferCounter(String outcome) {
+        return Counter.builder(TRANSFERS_METRIC)
+                .description("Transfers by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // A group that fails on commit is retried transfer by transfer, so outcomes only count once the transaction commits.
+    private void countTransfersAfterCommit(Map<String, Integer> outcomes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outcomes.forEach((outcome, count) -> transferCounter(outcome).increment(count));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outcomes.forEach((outcome, count) -> transferCounter(outcome).increment(count));
+            }
+        });
+    }
+
+    private static String transferOutcome(RuntimeException ex) {
+        if (ex instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (ex instanceof CardNotActiveException) {
+            return "card_not_active";
+        }
+        if (ex instanceof AccessDeniedException) {
+            return "access_denied";
+        }
+        if (ex instanceof CardNotFoundException) {
+            return "card_not_found";
+        }
+        if (ex instanceof IllegalStateException || ex instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        return "error";
+    }
+
+    private static Card batchCard(Map<Long, Card> cards, Long cardId, String role) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new CardNotFoundException(role + " card with ID " + cardId + " not found.");
+        }
+        return card;
+    }
 
+    private static void checkTransferAllowed(Card sourceCard, Card destinationCard, String username) {
         if (!sourceCard.getUser().getUsername().equals(username) || !destinationCard.getUser().getUsername().equals(username)) {
             throw new AccessDeniedException("User does not have permission to use one of the cards.");
         }
 
         if (sourceCard.getStatus() != CardStatus.ACTIVE) {
-            throw new IllegalStateException("Source card is not active.");
+            throw new CardNotActiveException("Source card is not active.");
         }
+    }
 
-        if (sourceCard.getBalance().compareTo(amount) < 0) {
-            throw new IllegalStateException("Insufficient funds on the source card.");
+    private static void checkSufficientFunds(BigDecimal available, BigDecimal amount) {
+        if (available.compareTo(amount) < 0) {
+            throw new InsufficientFundsException("Insufficient funds on the source card.");
         }
+    }
 
-        sourceCard.setBalance(sourceCard.getBalance().subtract(amount));
-        destinationCard.setBalance(destinationCard.getBalance().add(amount));
+    private Card lockSourceCard(Long cardId) {
+        return cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Source card with ID " + cardId + " not found."));
+    }
 
-        cardRepository.save(sourceCard);
-        cardRepository.save(destinationCard);
+    private Card lockDestinationCard(Long cardId) {
+        return cardRepository.findByIdForShare(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Destination card with ID " + cardId + " not found."));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Card> getAllCards(Long userId, CardStatus status, Pageable pageable) {
+    public Page<CardView> getAllCards(Long userId, CardStatus status, Pageable pageable) {
 
         List<Specification<Card>> specs = new ArrayList<>();
 
@@ -150,15 +488,38 @@ public class CardServiceImpl implements CardService {
 
         Specification<Card> finalSpec = Specification.allOf(specs);
 
-        return cardRepository.findAll(finalSpec, pageable);
+        return cardRepository.findViews(finalSpec, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<CardView> scrollAllCards(Long userId, CardStatus status, String cursor, int size) {
+        return scroll(Specification.allOf(CardSpecifications.hasUserId(userId), CardSpecifications.hasStatus(status)),
+                cursor, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCards(Long userId, CardStatus status, Consumer<CardView> consumer) {
+        try (Stream<CardView> cards = cardRepository.streamViews(
+                Specification.allOf(CardSpecifications.hasUserId(userId), CardSpecifications.hasStatus(status)))) {
+            cards.forEach(consumer);
+        }
+    }
+
+    // Keyset query: WHERE filters AND id > last id ORDER BY id LIMIT size + 1, without an offset or a count query.
+    private Window<CardView> scroll(Specification<Card> spec, String cursor, int size) {
+        KeysetScrollPosition position = ScrollCursor.decode(cursor);
+        int limit = Math.min(Math.max(size, 1), MAX_SCROLL_SIZE);
+        return cardRepository.scrollViews(spec, position, limit);
     }
 
     @Override
     @Transactional
     public void deleteCard(Long cardId) {
-        if (!cardRepository.existsById(cardId)) {
-            throw new CardNotFoundException("Card with ID " + cardId + " not found.");
-        }
+        Long ownerId = cardRepository.findUserIdById(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found."));
         cardRepository.deleteById(cardId);
+        eventPublisher.publishEvent(new CardsChangedEvent(Set.of(ownerId)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ReadReplicaRoutingDataSource;
+import com.example.bankcards.repository.CardSetVersionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import static com.example.bankcards.repository.CardSetVersionRepository.GLOBAL_SCOPE;
+
+/**
+ * Per-user and global card set versions used as ETags and card-list cache keys. The versions are bumped in the
+ * same transaction as the card change, just before commit, on a stripe no other open transaction is writing, so
+ * changes for the same user do not queue on one row. The in-memory copies are dropped after commit; versions
+ * changed by other instances are picked up within the TTL.
+ * <p>
+ * With a read replica, only versions read from the primary are cached. A reader routed to the replica reads the
+ * version there each time, next to the card list it describes, so a lagging replica is not cached for the TTL.
+ */
+@Service
+public class CardSetVersionService {
+
+    private final CardSetVersionRepository versionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate newTransaction;
+    private final Cache<Long, Long> versions;
+    private final Counter changes;
+    private final int stripeCount;
+    private final Optional<ReadReplicaRoutingDataSource> replicaRouting;
+
+    public CardSetVersionService(CardSetVersionRepository versionRepository, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry, Optional<ReadReplicaRoutingDataSource> replicaRouting,
+                                 @Value("${app.cards.version-cache.max-size:10000}") long maxSize,
+                                 @Value("${app.cards.version-cache.ttl-ms:5000}") long ttlMs,
+                                 @Value("${app.cards.version-stripes:16}") int stripeCount) {
+        this.versionRepository = versionRepository;
+        // Read-only, so the version comes from the same database as the card list it describes.
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.changes = Counter.builder("cards.version.changes")
+                .description("Users whose card set version was bumped by a committed change")
+                .register(meterRegistry);
+        this.stripeCount = stripeCount;
+        this.replicaRouting = replicaRouting;
+    }
+
+    public long getVersion(Long userId) {
+        return cachedVersion(userId);
+    }
+
+    public long getGlobalVersion() {
+        return cachedVersion(GLOBAL_SCOPE);
+    }
+
+    private long cachedVersion(long scopeId) {
+        if (replicaRouting.isPresent() && !replicaRouting.get().isCurrentUserPinned()) {
+            return readVersion(scopeId);
+        }
+        return versions.get(scopeId, this::readVersion);
+    }
+
+    private long readVersion(long scopeId) {
+        Long version = readOnlyTransaction.execute(status -> versionRepository.findVersion(scopeId));
+        return version != null ? version : 0;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void bumpVersions(CardsChangedEvent event) {
+        // Ascending scopes, so transactions that do have to wait for a stripe wait in the same order.
+        for (long scopeId : scopes(event)) {
+            if (!versionRepository.incrementFreeStripe(scopeId)) {
+                createStripes(scopeId);
+                if (!versionRepository.incrementFreeStripe(scopeId)) {
+                    versionRepository.incrementAnyStripe(scopeId, stripeCount);
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardsChanged(CardsChangedEvent event) {
+        versions.invalidateAll(scopes(event));
+        changes.increment(event.userIds().size());
+    }
+
+    // Stripes are created on first use in their own transaction, so a concurrent creator only makes this one retry.
+    private void createStripes(long scopeId) {
+        try {
+            newTransaction.executeWithoutResult(status -> versionRepository.createStripes(scopeId, stripeCount));
+        } catch (DuplicateKeyException e) {
+            newTransaction.executeWithoutResult(status -> versionRepository.createStripes(scopeId, stripeCount));
+        }
+    }
+
+    private static List<Long> scopes(CardsChangedEvent event) {
+        List<Long> scopes = new ArrayList<>(event.userIds().size() + 1);
+        scopes.add(GLOBAL_SCOPE);
+        scopes.addAll(new TreeSet<>(event.userIds()));
+        return scopes;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.Set;
+
+/**
+ * Published when cards owned by these users were created, deleted, changed status or moved money,
+ * so cached card lists of exactly those users can be dropped once the change is committed.
+ */
+public record CardsChangedEvent(Set<Long> userIds) {
+}
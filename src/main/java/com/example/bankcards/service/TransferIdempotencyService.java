@@ -0,0 +1,141 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runs transfers that carry an {@code Idempotency-Key}. A key's result is stored in
+ * {@code transfer_idempotency_keys} in the same transaction as the ledger entries, and kept in a local cache,
+ * so a retry gets the original result without touching {@code cards}. Concurrent requests with the same key
+ * on this instance wait for the first one; across instances the unique (username, key) constraint decides.
+ * Failed transfers are not stored, so they can be retried with the same key.
+ */
+@Service
+public class TransferIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final CardService cardService;
+    private final TransferIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Cache<RequestKey, TransferResponseDto> completed;
+    private final ConcurrentMap<RequestKey, CompletableFuture<TransferResponseDto>> inFlight = new ConcurrentHashMap<>();
+
+    public TransferIdempotencyService(CardService cardService,
+                                      TransferIdempotencyKeyRepository idempotencyKeyRepository,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${app.transfer.idempotency.retention-ms:86400000}") long retentionMs,
+                                      @Value("${app.transfer.idempotency.cache.max-size:10000}") long cacheMaxSize,
+                                      @Value("${app.transfer.idempotency.cache.ttl-ms:600000}") long cacheTtlMs) {
+        this.cardService = cardService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = Duration.ofMillis(retentionMs);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(Math.min(cacheTtlMs, retentionMs)))
+                .build();
+    }
+
+    public TransferResponseDto transfer(CardTransferRequestDto requestDto, String username, String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        RequestKey key = new RequestKey(username, idempotencyKey);
+        TransferResponseDto cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return requireSameRequest(cached, requestDto);
+        }
+
+        CompletableFuture<TransferResponseDto> ownResult = new CompletableFuture<>();
+        CompletableFuture<TransferResponseDto> running = inFlight.putIfAbsent(key, ownResult);
+        if (running != null) {
+            return requireSameRequest(await(running), requestDto);
+        }
+
+        try {
+            TransferResponseDto result = findStored(key).orElseGet(() -> execute(key, requestDto));
+            completed.put(key, result);
+            ownResult.complete(result);
+            return requireSameRequest(result, requestDto);
+        } catch (RuntimeException ex) {
+            ownResult.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, ownResult);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.transfer.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredKeys() {
+        idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+
+    private TransferResponseDto execute(RequestKey key, CardTransferRequestDto requestDto) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // Inserted before the transfer so a second instance with the same key blocks on the unique index.
+                TransferIdempotencyKey stored = idempotencyKeyRepository.saveAndFlush(new TransferIdempotencyKey(
+                        key.username(), key.idempotencyKey(), requestDto.getFromCardId(), requestDto.getToCardId(),
+                        requestDto.getAmount(), Instant.now()));
+                stored.setTransferId(cardService.transferBetweenCards(requestDto, key.username()));
+                return toResponse(stored);
+            });
+        } catch (DataIntegrityViolationException ex) {
+            return findStored(key).orElseThrow(() -> ex);
+        }
+    }
+
+    private Optional<TransferResponseDto> findStored(RequestKey key) {
+        return idempotencyKeyRepository.findByUsernameAndIdempotencyKey(key.username(), key.idempotencyKey())
+                .map(TransferIdempotencyService::toResponse);
+    }
+
+    private static TransferResponseDto await(CompletableFuture<TransferResponseDto> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static TransferResponseDto requireSameRequest(TransferResponseDto result, CardTransferRequestDto requestDto) {
+        if (!result.getFromCardId().equals(requestDto.getFromCardId())
+                || !result.getToCardId().equals(requestDto.getToCardId())
+                || result.getAmount().compareTo(requestDto.getAmount()) != 0) {
+            throw new IdempotencyKeyConflictException("Idempotency-Key was already used for a different transfer.");
+        }
+        return result;
+    }
+
+    private static TransferResponseDto toResponse(TransferIdempotencyKey stored) {
+        return new TransferResponseDto(stored.getTransferId(), stored.getFromCardId(), stored.getToCardId(),
+                stored.getAmount());
+    }
+
+    private record RequestKey(String username, String idempotencyKey) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.service;
+
+/**
+ * Published when a user's roles or credentials change, so cached security state can be dropped.
+ */
+public record UserChangedEvent(Long userId, String username) {
+}
@@ -8,6 +8,8 @@ import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,16 +20,20 @@ import java.util.Collections;
 import java.util.HashSet;
 
 @Service
+@Timed(value = "users.service", description = "UserService method latency", histogram = true)
 public class UserServiceImpl implements UserService{
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserServiceImpl(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                           ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -48,7 +54,9 @@ public class UserServiceImpl implements UserService{
 
         newUser.setRoles(new HashSet<>(Collections.singleton(userRole)));
 
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId(), savedUser.getUsername()));
+        return savedUser;
     }
 
     @Override
@@ -67,7 +75,7 @@ public class UserServiceImpl implements UserService{
                 .orElseThrow(() -> new RoleNotFoundException("Error: Role 'ADMIN' is not found."));
 
         user.getRoles().add(adminRole);
-        return userRepository.save(user);
+        return saveWithNewTokenVersion(user);
     }
 
     @Override
@@ -80,6 +88,14 @@ public class UserServiceImpl implements UserService{
                 .orElseThrow(() -> new RoleNotFoundException("Error: Role 'ADMIN' is not found."));
 
         user.getRoles().remove(adminRole);
-        return userRepository.save(user);
+        return saveWithNewTokenVersion(user);
+    }
+
+    // Roles are embedded in issued tokens, so a role change has to invalidate them.
+    private User saveWithNewTokenVersion(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
+        return saved;
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.dto.CardCursorPageDto;
 import com.example.bankcards.dto.CardResponseDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -38,10 +41,28 @@ public class CardMapper {
         return "**** **** **** " + lastFourDigits;
     }
 
-    public Page<CardResponseDto> toDtoPage(Page<Card> cardPage) {
+    public CardResponseDto toDto(CardView card) {
+        CardResponseDto dto = new CardResponseDto();
+
+        dto.setId(card.id());
+        dto.setExpiryDate(card.expiryDate());
+        dto.setStatus(card.status());
+        dto.setBalance(card.balance());
+        dto.setUserId(card.userId());
+        dto.setUsername(card.username());
+        dto.setCardNumberMasked(maskCardNumber(card.cardNumber()));
+
+        return dto;
+    }
+
+    public Page<CardResponseDto> toDtoPage(Page<CardView> cardPage) {
         if (cardPage == null) {
             return Page.empty();
         }
         return cardPage.map(this::toDto);
     }
+
+    public CardCursorPageDto toCursorPage(Window<CardView> cardWindow) {
+        return new CardCursorPageDto(cardWindow.map(this::toDto).getContent(), ScrollCursor.encode(cardWindow));
+    }
 }
\ No newline at end of file
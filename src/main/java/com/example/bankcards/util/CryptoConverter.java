@@ -1,27 +1,26 @@
 package com.example.bankcards.util;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
-import java.util.Base64;
-
 @Component
 @Converter
 public class CryptoConverter implements AttributeConverter<String, String> {
 
-    private static final String ALGORITHM = "AES/ECB/PKCS5Padding";
+    // Hibernate may create its own instance of the converter, so the timers go to the global registry that
+    // Spring Boot adds its registries to, like the engine below is shared through a static field.
+    private static final Timer ENCRYPT_TIMER = cryptoTimer("encrypt");
+    private static final Timer DECRYPT_TIMER = cryptoTimer("decrypt");
 
-    private static String secret;
+    private static CryptoEngine cryptoEngine;
 
-    @Value("${app.crypto.secret}")
-    public void setSecret(String secret) {
-        CryptoConverter.secret = secret;
+    @Autowired
+    public void setCryptoEngine(CryptoEngine cryptoEngine) {
+        CryptoConverter.cryptoEngine = cryptoEngine;
     }
 
     @Override
@@ -29,14 +28,7 @@ public class CryptoConverter implements AttributeConverter<String, String> {
         if (attribute == null) {
             return null;
         }
-        try {
-            Key key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "AES");
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            return Base64.getEncoder().encodeToString(cipher.doFinal(attribute.getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to encrypt attribute", e);
-        }
+        return ENCRYPT_TIMER.record(() -> cryptoEngine.encrypt(attribute));
     }
 
     @Override
@@ -44,13 +36,14 @@ public class CryptoConverter implements AttributeConverter<String, String> {
         if (dbData == null) {
             return null;
         }
-        try {
-            Key key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "AES");
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            return new String(cipher.doFinal(Base64.getDecoder().decode(dbData)), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to decrypt attribute", e);
-        }
+        return DECRYPT_TIMER.record(() -> cryptoEngine.decrypt(dbData));
+    }
+
+    private static Timer cryptoTimer(String operation) {
+        return Timer.builder("crypto.converter")
+                .description("Card number encryption and decryption in the JPA converter")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CryptoProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Encrypts card numbers with AES-GCM and computes their HMAC blind index.
+ * Keys are built once and every thread keeps its own {@link Cipher} and {@link Mac},
+ * so the per-call cost is a re-init instead of a provider lookup.
+ * Ciphertexts are prefixed with the key version ({@code v2:...}) so keys can be rotated.
+ */
+@Component
+public class CryptoEngine {
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String LEGACY_CIPHER_ALGORITHM = "AES/ECB/PKCS5Padding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String VERSION_PREFIX = "v";
+    private static final String UNVERSIONED_GCM_PREFIX = "gcm:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final CryptoKeyring keyring;
+    private final String activePrefix;
+    private final SecretKey blindIndexKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(() -> newCipher(CIPHER_ALGORITHM));
+    private final ThreadLocal<Cipher> legacyCipher = ThreadLocal.withInitial(() -> newCipher(LEGACY_CIPHER_ALGORITHM));
+    private final ThreadLocal<Mac> blindIndexMac = ThreadLocal.withInitial(this::newBlindIndexMac);
+
+    public CryptoEngine(CryptoProperties properties) {
+        this.keyring = CryptoKeyring.from(properties);
+        this.activePrefix = VERSION_PREFIX + keyring.activeVersion() + ":";
+        this.blindIndexKey = new SecretKeySpec(
+                properties.getBlindIndexSecret().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    public String encrypt(String plaintext) {
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        try {
+            Cipher gcm = cipher.get();
+            gcm.init(Cipher.ENCRYPT_MODE, keyring.activeKey(), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            byte[] encrypted = gcm.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            byte[] payload = ByteBuffer.allocate(IV_LENGTH + encrypted.length)
+                    .put(iv)
+                    .put(encrypted)
+                    .array();
+            return activePrefix + Base64.getEncoder().encodeToString(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt attribute", e);
+        }
+    }
+
+    public String decrypt(String ciphertext) {
+        try {
+            // Base64 never contains ':', so a value without a separator is a legacy ECB ciphertext.
+            int separator = ciphertext.indexOf(':');
+            if (separator < 0) {
+                return decryptLegacy(ciphertext);
+            }
+            String encoded = ciphertext.substring(separator + 1);
+            if (ciphertext.startsWith(UNVERSIONED_GCM_PREFIX)) {
+                return decryptGcm(keyring.key(CryptoKeyring.LEGACY_KEY_VERSION), encoded);
+            }
+            if (!ciphertext.startsWith(VERSION_PREFIX)) {
+                throw new IllegalArgumentException("Unknown ciphertext prefix");
+            }
+            int version = Integer.parseInt(ciphertext.substring(VERSION_PREFIX.length(), separator));
+            return decryptGcm(keyring.key(version), encoded);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to decrypt attribute", e);
+        }
+    }
+
+    /**
+     * Prefix carried by every ciphertext written with the active key.
+     */
+    public String activeKeyPrefix() {
+        return activePrefix;
+    }
+
+    public boolean isEncryptedWithActiveKey(String ciphertext) {
+        return ciphertext.startsWith(activePrefix);
+    }
+
+    /**
+     * Deterministic keyed hash used for equality lookups, since the ciphertext itself is randomized.
+     */
+    public String blindIndex(String value) {
+        byte[] digest = blindIndexMac.get().doFinal(value.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private String decryptGcm(SecretKey key, String encoded) throws GeneralSecurityException {
+        byte[] payload = Base64.getDecoder().decode(encoded);
+        Cipher gcm = cipher.get();
+        gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+        return new String(gcm.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+
+    // Values written before the switch to GCM were encrypted with AES/ECB under key version 1 and carry no prefix.
+    private String decryptLegacy(String ciphertext) throws GeneralSecurityException {
+        Cipher ecb = legacyCipher.get();
+        ecb.init(Cipher.DECRYPT_MODE, keyring.key(CryptoKeyring.LEGACY_KEY_VERSION));
+        return new String(ecb.doFinal(Base64.getDecoder().decode(ciphertext)), StandardCharsets.UTF_8);
+    }
+
+    private static Cipher newCipher(String algorithm) {
+        try {
+            return Cipher.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + algorithm + " is not available", e);
+        }
+    }
+
+    private Mac newBlindIndexMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(blindIndexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize blind index MAC", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CryptoProperties;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class CryptoKeyring {
+
+    static final int LEGACY_KEY_VERSION = 1;
+
+    private final Map<Integer, SecretKey> keys;
+    private final int activeVersion;
+
+    private CryptoKeyring(Map<Integer, SecretKey> keys, int activeVersion) {
+        this.keys = keys;
+        this.activeVersion = activeVersion;
+    }
+
+    public static CryptoKeyring from(CryptoProperties properties) {
+        Map<Integer, SecretKey> keys = new HashMap<>();
+        if (properties.getSecret() != null) {
+            keys.put(LEGACY_KEY_VERSION, aesKey(properties.getSecret()));
+        }
+        properties.getKeys().forEach((version, secret) -> keys.put(version, aesKey(secret)));
+
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("No encryption keys configured (app.crypto.secret or app.crypto.keys)");
+        }
+
+        int activeVersion = properties.getActiveKeyVersion() != null
+                ? properties.getActiveKeyVersion()
+                : Collections.max(keys.keySet());
+        if (!keys.containsKey(activeVersion)) {
+            throw new IllegalStateException("Active key version " + activeVersion + " is not configured");
+        }
+        return new CryptoKeyring(Map.copyOf(keys), activeVersion);
+    }
+
+    public int activeVersion() {
+        return activeVersion;
+    }
+
+    public SecretKey activeKey() {
+        return keys.get(activeVersion);
+    }
+
+    public SecretKey key(int version) {
+        SecretKey key = keys.get(version);
+        if (key == null) {
+            throw new IllegalStateException("Encryption key version " + version + " is not configured");
+        }
+        return key;
+    }
+
+    private static SecretKey aesKey(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "AES");
+    }
+}
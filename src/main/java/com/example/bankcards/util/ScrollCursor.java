@@ -0,0 +1,42 @@
+package com.example.bankcards.util;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Opaque cursor for keyset pagination ordered by {@code id}: the client gets back the last id of a page
+ * and the next query continues with {@code id > lastId} instead of skipping an offset.
+ */
+public final class ScrollCursor {
+
+    private static final String ID_KEY = "id";
+
+    private ScrollCursor() {
+    }
+
+    public static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String lastId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return ScrollPosition.forward(Map.of(ID_KEY, Long.parseLong(lastId)));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor.", ex);
+        }
+    }
+
+    public static String encode(Window<?> window) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        String lastId = String.valueOf(position.getKeys().get(ID_KEY));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(h2(), 2, 50);
+
+    private static JdbcDataSource h2() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:limit;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    @Test
+    void getConnection_whenAllPermitsAreTaken_shouldTimeOutUntilOneIsClosed() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        first.close();
+        try (Connection third = dataSource.getConnection()) {
+            assertThat(third.isValid(1)).isTrue();
+        }
+        second.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void close_whenCalledTwice_shouldReleaseOnePermit() throws Exception {
+        Connection connection = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+        assertThat(connection.unwrap(Connection.class)).isSameAs(connection);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.service.CardsChangedEvent;
+import com.example.bankcards.service.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private static final String WHICH_DATABASE = "SELECT name FROM node";
+
+    private final AtomicReference<Long> currentUser = new AtomicReference<>();
+    private ReadReplicaPinListener pinListener;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(database("primary"), database("replica"),
+                currentUser::get, Duration.ofMillis(200), 100);
+        pinListener = new ReadReplicaPinListener(routing);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String readOnlyQuery() {
+        return readOnly.execute(status -> jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+    }
+
+    private void write() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+    }
+
+    // Delivers the event after commit, as the transactional event listener does.
+    private void write(Runnable publishAfterCommit) {
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishAfterCommit.run();
+                }
+            });
+        });
+    }
+
+    @Test
+    void getConnection_shouldSendOnlyReadOnlyTransactionsToReplica() {
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+        String readWriteDatabase = readWrite.execute(status -> jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+        assertThat(readWriteDatabase).isEqualTo("primary");
+        assertThat(jdbcTemplate.queryForObject(WHICH_DATABASE, String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    void getConnection_afterUserCommitsWrite_shouldPinOnlyThatUserToPrimaryForTheWindow() throws InterruptedException {
+        currentUser.set(1L);
+        write();
+        assertThat(readOnlyQuery()).isEqualTo("primary");
+
+        currentUser.set(2L);
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+
+        Thread.sleep(300);
+        currentUser.set(1L);
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+    }
+
+    @Test
+    void getConnection_afterQueuedTransferCommitsOnWorkerThread_shouldPinCardOwners() {
+        // Transfer workers commit without a security context; the owners come from the committed event.
+        CompletableFuture.runAsync(() -> write(() -> pinListener.onCardsChanged(new CardsChangedEvent(Set.of(1L, 2L)))))
+                .join();
+
+        currentUser.set(1L);
+        assertThat(readOnlyQuery()).isEqualTo("primary");
+        currentUser.set(2L);
+        assertThat(readOnlyQuery()).isEqualTo("primary");
+        currentUser.set(3L);
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+    }
+
+    @Test
+    void getConnection_whenLoggingInRightAfterRegistering_shouldReadUserFromPrimary() {
+        write(() -> pinListener.onUserChanged(new UserChangedEvent(5L, "carol")));
+
+        assertThat(ReadReplicaRoutingDataSource.readingUser("carol", this::readOnlyQuery)).isEqualTo("primary");
+        assertThat(ReadReplicaRoutingDataSource.readingUser("dave", this::readOnlyQuery)).isEqualTo("replica");
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+    }
+
+    @Test
+    void getConnection_whenWriteRollsBack_shouldNotPinUser() {
+        currentUser.set(1L);
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyQuery()).isEqualTo("replica");
+    }
+}
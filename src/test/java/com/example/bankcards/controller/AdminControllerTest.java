@@ -0,0 +1,193 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.config.SecurityConfig;
+import com.example.bankcards.exception.GlobalExceptionHandler;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtAccessDeniedHandler;
+import com.example.bankcards.security.JwtAuthenticationEntryPoint;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.TokenVersionService;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardImportService;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardSetVersionService;
+import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.CardMapper;
+import com.example.bankcards.util.UserMapper;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {AdminController.class, GlobalExceptionHandler.class})
+@Import({SecurityConfig.class, JwtAuthenticationEntryPoint.class, JwtAccessDeniedHandler.class})
+@TestPropertySource(properties = "app.jwt.stateless=true")
+class AdminControllerTest {
+
+    private static final String ADMIN_TOKEN = "Bearer admin-token";
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        public CardService cardService() {
+            return mock(CardService.class);
+        }
+
+        @Bean
+        public CardMapper cardMapper() {
+            return mock(CardMapper.class);
+        }
+
+        @Bean
+        public UserService userService() {
+            return mock(UserService.class);
+        }
+
+        @Bean
+        public UserMapper userMapper() {
+            return mock(UserMapper.class);
+        }
+
+        @Bean
+        public CardExportService cardExportService() {
+            return mock(CardExportService.class);
+        }
+
+        @Bean
+        public CardImportService cardImportService() {
+            return mock(CardImportService.class);
+        }
+
+        @Bean
+        public CardSetVersionService cardSetVersionService() {
+            return mock(CardSetVersionService.class);
+        }
+
+        @Bean
+        public JwtTokenProvider jwtTokenProvider() {
+            return mock(JwtTokenProvider.class);
+        }
+
+        @Bean
+        public TokenVersionService tokenVersionService() {
+            return mock(TokenVersionService.class);
+        }
+
+        @Bean
+        public UserDetailsService userDetailsService() {
+            return mock(UserDetailsService.class);
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private CardSetVersionService cardSetVersionService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @BeforeEach
+    void setUp() {
+        reset(cardService, cardMapper, cardSetVersionService);
+        Claims claims = mock(Claims.class);
+        when(jwtTokenProvider.parseClaims("admin-token")).thenReturn(Optional.of(claims));
+        when(jwtTokenProvider.getPrincipal(claims)).thenReturn(Optional.of(new AuthenticatedUser(
+                1L, "admin", null, 0, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")))));
+        when(tokenVersionService.isCurrent(1L, 0)).thenReturn(true);
+    }
+
+    @Test
+    void getAllCards_withoutIfNoneMatch_shouldReturnPageWithGlobalEtag() throws Exception {
+        when(cardSetVersionService.getGlobalVersion()).thenReturn(7L);
+        when(cardService.getAllCards(any(), any(), any())).thenReturn(Page.empty());
+        when(cardMapper.toDtoPage(any())).thenReturn(Page.empty());
+
+        mockMvc.perform(get("/api/v1/admin/cards").header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"cards-all-7\""));
+    }
+
+    @Test
+    void getAllCards_whenIfNoneMatchIsCurrent_shouldReturn304WithoutQueryingCards() throws Exception {
+        when(cardSetVersionService.getGlobalVersion()).thenReturn(7L);
+
+        mockMvc.perform(get("/api/v1/admin/cards")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"cards-all-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"cards-all-7\""));
+
+        verify(cardService, never()).getAllCards(any(), any(), any());
+        verify(cardMapper, never()).toDtoPage(any());
+    }
+
+    @Test
+    void getAllCards_forUserWhenIfNoneMatchIsCurrent_shouldReturn304WithoutQueryingCards() throws Exception {
+        when(cardSetVersionService.getVersion(5L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/admin/cards").param("userId", "5")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"cards-5-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(cardService, never()).getAllCards(any(), any(), any());
+        verify(cardSetVersionService, never()).getGlobalVersion();
+    }
+
+    @Test
+    void getAllCards_whenIfNoneMatchIsStale_shouldReturnPage() throws Exception {
+        when(cardSetVersionService.getGlobalVersion()).thenReturn(8L);
+        when(cardService.getAllCards(any(), any(), any())).thenReturn(Page.empty());
+        when(cardMapper.toDtoPage(any())).thenReturn(Page.empty());
+
+        mockMvc.perform(get("/api/v1/admin/cards")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"cards-all-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"cards-all-8\""));
+
+        verify(cardService).getAllCards(any(), any(), any());
+    }
+
+    @Test
+    void prometheus_onApiPort_shouldRequireAuthentication() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -6,9 +6,15 @@ import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.GlobalExceptionHandler;
 import com.example.bankcards.exception.UserAlreadyExistsException;
+import com.example.bankcards.security.JwtAccessDeniedHandler;
+import com.example.bankcards.security.JwtAuthenticationEntryPoint;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.TokenVersionService;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.UserMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -16,6 +22,7 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -25,7 +32,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = {UserController.class, GlobalExceptionHandler.class})class UserControllerTest {
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, JwtAuthenticationEntryPoint.class, JwtAccessDeniedHandler.class})
     @TestConfiguration
     static class TestConfig {
         @Bean
@@ -37,6 +44,26 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         public UserMapper userMapper() {
             return mock(UserMapper.class);
         }
+
+        @Bean
+        public JwtTokenProvider jwtTokenProvider() {
+            return mock(JwtTokenProvider.class);
+        }
+
+        @Bean
+        public TokenVersionService tokenVersionService() {
+            return mock(TokenVersionService.class);
+        }
+
+        @Bean
+        public UserDetailsService userDetailsService() {
+            return mock(UserDetailsService.class);
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
     }
 
     @Autowired
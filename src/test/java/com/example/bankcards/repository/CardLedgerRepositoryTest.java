@@ -0,0 +1,62 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class CardLedgerRepositoryTest {
+
+    @Autowired
+    private CardLedgerRepository cardLedgerRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, expiry_date, status, balance, user_id) "
+                + "VALUES (1, 'card-1', DATE '2030-01-01', 'ACTIVE', 100, 1), "
+                + "(2, 'card-2', DATE '2030-01-01', 'ACTIVE', 100, 1)");
+    }
+
+    private static Card card(long id) {
+        Card card = new Card();
+        card.setId(id);
+        return card;
+    }
+
+    @Test
+    void insertAll_shouldWriteEntriesThatCountTowardsCurrentBalances() {
+        Instant now = Instant.now();
+        cardLedgerRepository.insertAll(List.of(
+                new CardLedgerEntry(card(1), "transfer-1", new BigDecimal("-40"), now),
+                new CardLedgerEntry(card(2), "transfer-1", new BigDecimal("40"), now),
+                new CardLedgerEntry(card(2), "transfer-2", new BigDecimal("-15"), now),
+                new CardLedgerEntry(card(1), "transfer-2", new BigDecimal("15"), now)));
+
+        Map<Long, BigDecimal> balances = cardRepository.findCurrentBalances(List.of(1L, 2L)).stream()
+                .collect(Collectors.toMap(CardRepository.CardBalanceView::getId, CardRepository.CardBalanceView::getBalance));
+
+        assertThat(cardLedgerRepository.count()).isEqualTo(4);
+        assertThat(balances.get(1L)).isEqualByComparingTo("75");
+        assertThat(balances.get(2L)).isEqualByComparingTo("125");
+        assertThat(cardRepository.findCurrentBalance(1L)).isEqualByComparingTo("75");
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.specifications.CardSpecifications;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs repository queries, captures the SQL Hibernate sends and checks H2's EXPLAIN for each filtered statement:
+ * a {@code tableScan} in the plan means a filter or join is not backed by an index.
+ */
+@DataJpaTest
+class QueryPlanTest {
+
+    private static final Pattern WHERE_CLAUSE = Pattern.compile("\\bwhere\\b");
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private TransferIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private RecordingStatementInspector statements;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingStatementInspector recordingStatementInspector() {
+            return new RecordingStatementInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(RecordingStatementInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    static class RecordingStatementInspector implements StatementInspector {
+
+        private final List<String> sql = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String statement) {
+            sql.add(statement);
+            return statement;
+        }
+
+        List<String> drain() {
+            List<String> recorded = new ArrayList<>(sql);
+            sql.clear();
+            return recorded;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        statements.drain();
+    }
+
+    @Test
+    void cardRepositoryQueries_shouldNotScanTables() {
+        cardRepository.existsByCardNumberHash("hash-1");
+        cardRepository.findUserIdById(1L);
+        cardRepository.findExistingCardNumberHashes(List.of("hash-1", "hash-2"));
+        cardRepository.findByUserId(1L, PageRequest.of(1, 10));
+        cardRepository.findByIdForUpdate(1L);
+        cardRepository.findAllByIdForUpdate(List.of(1L, 2L));
+        cardRepository.findByIdForShare(1L);
+        cardRepository.findCurrentBalance(1L);
+        cardRepository.findCurrentBalances(List.of(1L, 2L));
+        cardRepository.updateBalanceMode(1L, BigDecimal.TEN, 1);
+
+        Specification<Card> ownCards = Specification.allOf(
+                CardSpecifications.hasUserId(1L), CardSpecifications.hasStatus(CardStatus.ACTIVE));
+        Specification<Card> byStatus = CardSpecifications.hasStatus(CardStatus.BLOCKED);
+        cardRepository.findAll(ownCards, PageRequest.of(1, 10));
+        cardRepository.findAll(byStatus, PageRequest.of(1, 10));
+        cardRepository.findAll(CardSpecifications.hasUserId(1L), PageRequest.of(1, 10));
+        cardRepository.findBy(byStatus, query -> query.sortBy(Sort.by("id")).limit(10)
+                .scroll(ScrollPosition.forward(Map.of("id", 1L))));
+        cardRepository.findViews(ownCards, PageRequest.of(1, 10));
+        cardRepository.findViews(byStatus, PageRequest.of(1, 10));
+        cardRepository.scrollViews(byStatus, ScrollPosition.forward(Map.of("id", 1L)), 10);
+        try (Stream<CardRepositoryCustom.CardView> export = cardRepository.streamViews(ownCards)) {
+            export.forEach(card -> { });
+        }
+
+        assertNoTableScans(statements.drain());
+    }
+
+    @Test
+    void userAndRoleQueries_shouldNotScanTables() {
+        userRepository.findByUsername("owner");
+        userRepository.findTokenVersionById(1L);
+        userRepository.findExistingIds(List.of(1L, 2L));
+        userRepository.findById(1L).ifPresent(user -> user.getRoles().size());
+        roleRepository.findByName("ROLE_USER");
+
+        assertNoTableScans(statements.drain());
+    }
+
+    @Test
+    void idempotencyKeyQueries_shouldNotScanTables() {
+        idempotencyKeyRepository.findByUsernameAndIdempotencyKey("owner", "key-1");
+        idempotencyKeyRepository.deleteCreatedBefore(Instant.now());
+
+        assertNoTableScans(statements.drain());
+    }
+
+    private void assertNoTableScans(List<String> recorded) {
+        List<String> checked = recorded.stream()
+                .filter(sql -> sql.stripLeading().toLowerCase(Locale.ROOT).matches("(?s)^(select|update|delete)\\b.*"))
+                .filter(sql -> WHERE_CLAUSE.matcher(sql.toLowerCase(Locale.ROOT)).find())
+                .toList();
+        assertThat(checked).isNotEmpty();
+
+        for (String sql : checked) {
+            String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            });
+            assertThat(plan).as("Plan of %s", sql).doesNotContain(".tableScan");
+        }
+    }
+}
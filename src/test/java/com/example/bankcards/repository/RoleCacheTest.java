@@ -0,0 +1,89 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.HibernateCacheConfig;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RoleCacheTest {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users_roles");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        jdbcTemplate.update("INSERT INTO users_roles (user_id, role_id) SELECT 1, id FROM roles WHERE name = 'ROLE_USER'");
+        // Rows above were written behind Hibernate's back.
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findByName_whenWarm_shouldNotQueryTheDatabase() {
+        Role warm = roleRepository.findByName("ROLE_ADMIN").orElseThrow();
+        statistics.clear();
+
+        Role cached = roleRepository.findByName("ROLE_ADMIN").orElseThrow();
+        roleRepository.findByName("ROLE_ADMIN").orElseThrow();
+
+        assertThat(cached.getId()).isEqualTo(warm.getId());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void findUser_whenWarm_shouldReadRolesFromCache() {
+        userRepository.findById(1L).orElseThrow();
+        statistics.clear();
+
+        User user = userRepository.findById(1L).orElseThrow();
+
+        assertThat(user.getRoles()).extracting(Role::getName).containsExactly("ROLE_USER");
+        // Only the users row itself; users_roles and roles come from the second-level cache.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void saveUser_whenRolesChange_shouldNotServeStaleRoleSet() {
+        User user = userRepository.findById(1L).orElseThrow();
+        user.getRoles().add(roleRepository.findByName("ROLE_ADMIN").orElseThrow());
+        userRepository.save(user);
+
+        User reloaded = userRepository.findById(1L).orElseThrow();
+
+        assertThat(reloaded.getRoles()).extracting(Role::getName)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    }
+}
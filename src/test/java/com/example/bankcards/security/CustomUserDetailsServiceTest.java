@@ -0,0 +1,87 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig({CacheConfig.class, CustomUserDetailsService.class})
+class CustomUserDetailsServiceTest {
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USER_DETAILS_CACHE).clear();
+
+        Role userRole = new Role();
+        userRole.setName("ROLE_USER");
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setPassword("hashed");
+        user.setRoles(Set.of(userRole));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void loadUserByUsername_whenCalledRepeatedly_shouldQueryRepositoryOnce() {
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        assertThat(userDetailsService.loadUserByUsername("testuser"))
+                .isInstanceOf(AuthenticatedUser.class)
+                .extracting(details -> ((AuthenticatedUser) details).getId())
+                .isEqualTo(1L);
+        verify(userRepository, times(1)).findByUsername("testuser");
+    }
+
+    @Test
+    void loadUserByUsername_afterUserChanged_shouldReloadFromRepository() {
+        userDetailsService.loadUserByUsername("testuser");
+
+        eventPublisher.publishEvent(new UserChangedEvent(1L, "testuser"));
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    void updatePassword_shouldStoreNewHashAndDropCachedUser() {
+        AuthenticatedUser cached = (AuthenticatedUser) userDetailsService.loadUserByUsername("testuser");
+
+        UserDetails upgraded = userDetailsService.updatePassword(cached, "rehashed");
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(3)).findByUsername("testuser");
+        assertThat(upgraded.getPassword()).isEqualTo("rehashed");
+        assertThat(userRepository.findByUsername("testuser").orElseThrow().getPassword()).isEqualTo("rehashed");
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-jwt-secret-that-is-long-enough-for-hs256";
+
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 3_600_000, 100, 60_000);
+
+    @Test
+    void generateToken_withAuthenticatedUser_shouldEmbedIdRolesAndVersion() {
+        AuthenticatedUser user = new AuthenticatedUser(7L, "testuser", "hashed", 3,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+        String token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        Claims claims = tokenProvider.parseClaims(token).orElseThrow();
+        AuthenticatedUser principal = tokenProvider.getPrincipal(claims).orElseThrow();
+
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("testuser");
+        assertThat(principal.getPassword()).isNull();
+        assertThat(principal.getTokenVersion()).isEqualTo(3);
+        assertThat(principal.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @Test
+    void getPrincipal_whenTokenHasNoUserClaims_shouldBeEmpty() {
+        String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(
+                "testuser", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        Claims claims = tokenProvider.parseClaims(token).orElseThrow();
+
+        assertThat(tokenProvider.getPrincipal(claims)).isEmpty();
+        assertThat(tokenProvider.getTokenVersion(claims)).isNull();
+    }
+
+    @Test
+    void parseClaims_whenSignedWithAnotherKey_shouldBeEmpty() {
+        JwtTokenProvider otherProvider = new JwtTokenProvider(SECRET.replace('t', 'x'), 3_600_000, 100, 60_000);
+        String token = otherProvider.generateToken(new UsernamePasswordAuthenticationToken(
+                "testuser", null, List.of()));
+
+        assertThat(tokenProvider.parseClaims(token)).isEmpty();
+    }
+
+    @Test
+    void parseClaims_whenTokenHasNoExpiry_shouldBeEmpty() {
+        String token = Jwts.builder()
+                .subject("testuser")
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+        assertThat(tokenProvider.parseClaims(token)).isEmpty();
+        assertThat(tokenProvider.parseClaims(token)).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private LoginExecutor loginExecutor;
+
+    private final AuthenticationManager authenticationManager = authentication -> {
+        if ("slow".equals(authentication.getName())) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if ("wrong".equals(authentication.getCredentials())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(authentication.getName(), null, null);
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        loginExecutor.stop();
+    }
+
+    private static Authentication login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+
+    @Test
+    void authenticate_shouldReturnResultAndRethrowAuthenticationFailures() {
+        loginExecutor = new LoginExecutor(authenticationManager, meterRegistry, 1, 1, 5_000);
+
+        assertThat(loginExecutor.authenticate(login("alice", "secret")).isAuthenticated()).isTrue();
+        assertThatThrownBy(() -> loginExecutor.authenticate(login("alice", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThat(meterRegistry.get("auth.login").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.login").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void authenticate_whenThreadAndQueueAreFull_shouldRejectImmediately() throws InterruptedException {
+        loginExecutor = new LoginExecutor(authenticationManager, meterRegistry, 1, 1, 5_000);
+        CompletableFuture<Authentication> running = CompletableFuture.supplyAsync(
+                () -> loginExecutor.authenticate(login("slow", "secret")));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Authentication> queued = CompletableFuture.supplyAsync(
+                () -> loginExecutor.authenticate(login("bob", "secret")));
+        while (meterRegistry.get("auth.login.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> loginExecutor.authenticate(login("carol", "secret")))
+                .isInstanceOf(LoginCapacityExceededException.class);
+        assertThat(meterRegistry.get("auth.login").tag("outcome", "rejected").timer().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.join().isAuthenticated()).isTrue();
+        assertThat(queued.join().isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void authenticate_whenVerificationTakesTooLong_shouldTimeOut() {
+        loginExecutor = new LoginExecutor(authenticationManager, meterRegistry, 1, 1, 50);
+
+        assertThatThrownBy(() -> loginExecutor.authenticate(login("slow", "secret")))
+                .isInstanceOf(LoginCapacityExceededException.class);
+        assertThat(meterRegistry.get("auth.login").tag("outcome", "timeout").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RateLimitProperties properties;
+    private RequestRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(3);
+        limit.setRefillPerSecond(0.5);
+        properties = new RateLimitProperties();
+        properties.setRoutes(Map.of("transfer", limit));
+        rateLimiter = new RequestRateLimiter(properties, meterRegistry, now::get);
+    }
+
+    @Test
+    void acquire_whenBurstIsUsed_shouldRejectWithRetryAfterAndCountRejection() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire("transfer", "user", "alice");
+        }
+
+        assertThatThrownBy(() -> rateLimiter.acquire("transfer", "user", "alice"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting(ex -> ((RateLimitExceededException) ex).getRetryAfterSeconds())
+                .isEqualTo(2L);
+        assertThat(meterRegistry.get("rate.limit.rejections").tag("route", "transfer").tag("key", "user")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_shouldRefillOverTimeAndKeepKeysApart() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire("transfer", "user", "alice");
+        }
+        rateLimiter.acquire("transfer", "user", "bob");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        rateLimiter.acquire("transfer", "user", "alice");
+        assertThatThrownBy(() -> rateLimiter.acquire("transfer", "user", "alice"))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void acquire_whenRouteIsNotConfiguredOrLimitingIsDisabled_shouldAllowEverything() {
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.acquire("login-ip", "ip", "10.0.0.1");
+        }
+
+        properties.setEnabled(false);
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.acquire("transfer", "user", "alice");
+        }
+    }
+
+    @Test
+    void acquire_fromManyThreads_shouldAdmitExactlyTheBurst() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    rateLimiter.acquire("transfer", "user", "alice");
+                    admitted.incrementAndGet();
+                } catch (RateLimitExceededException ignored) {
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(admitted).hasValue(3);
+    }
+}
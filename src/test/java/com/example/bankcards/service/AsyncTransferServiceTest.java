@@ -0,0 +1,130 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AsyncTransferStatus;
+import com.example.bankcards.dto.AsyncTransferStatusDto;
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.BatchTransferItemStatus;
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.exception.TransferQueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncTransferServiceTest {
+
+    @Mock
+    private CardService cardService;
+
+    private AsyncTransferService asyncTransferService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncTransferService.stop();
+    }
+
+    private void start(int queueCapacity, long maxWaitMs) {
+        asyncTransferService = new AsyncTransferService(cardService, queueCapacity, 1, 100, maxWaitMs, 60_000, 1_000, 5_000);
+        asyncTransferService.start();
+    }
+
+    private static CardTransferRequestDto request(long fromCardId, String amount) {
+        CardTransferRequestDto requestDto = new CardTransferRequestDto();
+        requestDto.setFromCardId(fromCardId);
+        requestDto.setToCardId(99L);
+        requestDto.setAmount(new BigDecimal(amount));
+        return requestDto;
+    }
+
+    @Test
+    void whenTransfersAreQueuedTogether_thenTheyAreCommittedAsOneGroup() {
+        when(cardService.transferGroup(anyList(), anyList())).thenReturn(List.of(
+                new BatchTransferItemResultDto(0, BatchTransferItemStatus.SUCCEEDED, "transfer-1", null),
+                new BatchTransferItemResultDto(1, BatchTransferItemStatus.FAILED, null, "Insufficient funds on the source card."),
+                new BatchTransferItemResultDto(2, BatchTransferItemStatus.SUCCEEDED, "transfer-3", null)));
+        start(100, 500);
+
+        AsyncTransferService.Submission first = asyncTransferService.submit(request(1L, "10.00"), "alice");
+        AsyncTransferService.Submission second = asyncTransferService.submit(request(2L, "20.00"), "bob");
+        AsyncTransferService.Submission third = asyncTransferService.submit(request(3L, "30.00"), "alice");
+
+        assertThat(first.result().join().getTransferId()).isEqualTo("transfer-1");
+        assertThat(third.result().join().getTransferId()).isEqualTo("transfer-3");
+        CompletionException failure = assertThrows(CompletionException.class, () -> second.result().join());
+        assertThat(failure.getCause()).hasMessage("Insufficient funds on the source card.");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> usernames = ArgumentCaptor.forClass(List.class);
+        verify(cardService, times(1)).transferGroup(anyList(), usernames.capture());
+        assertThat(usernames.getValue()).containsExactly("alice", "bob", "alice");
+
+        AsyncTransferStatusDto status = asyncTransferService.getStatus(second.requestId(), "bob").orElseThrow();
+        assertThat(status.getStatus()).isEqualTo(AsyncTransferStatus.FAILED);
+        assertThat(status.getError()).isEqualTo("Insufficient funds on the source card.");
+        assertThat(asyncTransferService.getStatus(first.requestId(), "alice").orElseThrow().getStatus())
+                .isEqualTo(AsyncTransferStatus.SUCCEEDED);
+        assertThat(asyncTransferService.getStatus(first.requestId(), "bob")).isEmpty();
+    }
+
+    @Test
+    void whenGroupTransactionFails_thenTransfersAreAppliedOneByOne() {
+        when(cardService.transferGroup(anyList(), anyList())).thenThrow(new CannotAcquireLockException("deadlock"));
+        when(cardService.transferBetweenCards(any(CardTransferRequestDto.class), eq("alice"))).thenReturn("transfer-1");
+        start(100, 0);
+
+        TransferResponseDto result = asyncTransferService.submit(request(1L, "10.00"), "alice").result().join();
+
+        assertThat(result.getTransferId()).isEqualTo("transfer-1");
+        assertThat(result.getAmount()).isEqualByComparingTo("10.00");
+        verify(cardService).transferBetweenCards(any(CardTransferRequestDto.class), eq("alice"));
+    }
+
+    @Test
+    void whenQueueIsFull_thenSubmitIsRejected() throws InterruptedException {
+        CountDownLatch workerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cardService.transferGroup(anyList(), anyList())).thenAnswer(invocation -> {
+            workerBusy.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<?> transfers = invocation.getArgument(0);
+            List<BatchTransferItemResultDto> results = new ArrayList<>();
+            for (int i = 0; i < transfers.size(); i++) {
+                results.add(new BatchTransferItemResultDto(i, BatchTransferItemStatus.SUCCEEDED, "transfer", null));
+            }
+            return results;
+        });
+        start(1, 0);
+
+        AsyncTransferService.Submission running = asyncTransferService.submit(request(1L, "10.00"), "alice");
+        assertThat(workerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+        AsyncTransferService.Submission queued = asyncTransferService.submit(request(2L, "10.00"), "alice");
+
+        assertThrows(TransferQueueFullException.class,
+                () -> asyncTransferService.submit(request(3L, "10.00"), "alice"));
+        assertThat(asyncTransferService.getStatus(queued.requestId(), "alice").orElseThrow().getStatus())
+                .isEqualTo(AsyncTransferStatus.PENDING);
+
+        release.countDown();
+        assertThat(running.result().join().getTransferId()).isEqualTo("transfer");
+        assertThat(queued.result().join().getTransferId()).isEqualTo("transfer");
+    }
+}
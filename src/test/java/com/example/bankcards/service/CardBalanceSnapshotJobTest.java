@@ -0,0 +1,73 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardBalanceSnapshotJobTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM card_ledger");
+        jdbcTemplate.update("DELETE FROM cards");
+        jdbcTemplate.update("DELETE FROM users");
+
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        for (int id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO cards (id, card_number, expiry_date, status, balance, user_id) "
+                    + "VALUES (?, ?, DATE '2030-01-01', 'ACTIVE', 100, 1)", id, "card-" + id);
+        }
+        addEntry(1, "-30");
+        addEntry(2, "30");
+        addEntry(1, "-20");
+        addEntry(2, "20");
+    }
+
+    private void addEntry(long cardId, String amount) {
+        jdbcTemplate.update("INSERT INTO card_ledger (card_id, transfer_id, amount, created_at) "
+                + "VALUES (?, 'transfer', ?, CURRENT_TIMESTAMP)", cardId, new BigDecimal(amount));
+    }
+
+    @Test
+    void snapshotAll_shouldFoldLedgerIntoSnapshotAndKeepCurrentBalance() {
+        CardBalanceSnapshotJob job = new CardBalanceSnapshotJob(jdbcTemplate,
+                new TransactionTemplate(transactionManager), true, 2);
+
+        assertThat(job.snapshotAll()).isEqualTo(2);
+
+        long lastEntryId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM card_ledger", Long.class);
+        Map<String, Object> first = card(1);
+        assertThat((BigDecimal) first.get("BALANCE")).isEqualByComparingTo("50");
+        assertThat(((Number) first.get("LEDGER_POSITION")).longValue()).isEqualTo(lastEntryId - 1);
+        assertThat((BigDecimal) card(2).get("BALANCE")).isEqualByComparingTo("150");
+        assertThat(((Number) card(3).get("LEDGER_POSITION")).longValue()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_ledger", Integer.class)).isEqualTo(4);
+
+        addEntry(1, "5");
+        assertThat(job.snapshotAll()).isEqualTo(1);
+        assertThat((BigDecimal) card(1).get("BALANCE")).isEqualByComparingTo("55");
+    }
+
+    private Map<String, Object> card(long id) {
+        return jdbcTemplate.queryForMap("SELECT balance, ledger_position FROM cards WHERE id = ?", id);
+    }
+}
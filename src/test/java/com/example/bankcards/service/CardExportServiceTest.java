@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardFileFormat;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
+import com.example.bankcards.util.CardMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CardExportServiceTest {
+
+    @Mock
+    private CardService cardService;
+
+    private CardExportService cardExportService;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @BeforeEach
+    void setUp() {
+        cardExportService = new CardExportService(cardService, new CardMapper(), objectMapper);
+        doAnswer(invocation -> {
+            Consumer<CardView> consumer = invocation.getArgument(2);
+            consumer.accept(new CardView(1L, "4000000000000001", LocalDate.of(2030, 1, 31), CardStatus.ACTIVE,
+                    new BigDecimal("10.5000"), 7L, "owner"));
+            consumer.accept(new CardView(2L, "4000000000000002", LocalDate.of(2030, 2, 28), CardStatus.BLOCKED,
+                    BigDecimal.ZERO, 8L, "o\"dd,name"));
+            return null;
+        }).when(cardService).exportCards(eq(null), eq(null), any());
+    }
+
+    private String export(CardFileFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cardExportService.export(output, format, null, null);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void export_asCsv_shouldWriteHeaderMaskedNumbersAndEscapedFields() throws Exception {
+        assertThat(export(CardFileFormat.CSV).split("\n")).containsExactly(
+                "id,cardNumberMasked,expiryDate,status,balance,userId,username",
+                "1,**** **** **** 0001,2030-01-31,ACTIVE,10.5000,7,owner",
+                "2,**** **** **** 0002,2030-02-28,BLOCKED,0,8,\"o\"\"dd,name\"");
+    }
+
+    @Test
+    void export_asNdjson_shouldWriteOneJsonObjectPerLine() throws Exception {
+        String[] lines = export(CardFileFormat.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(2);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(second.get("id").asLong()).isEqualTo(2L);
+        assertThat(second.get("cardNumberMasked").asText()).isEqualTo("**** **** **** 0002");
+        assertThat(second.get("username").asText()).isEqualTo("o\"dd,name");
+        assertThat(lines[0]).doesNotContain("4000000000000001");
+    }
+}
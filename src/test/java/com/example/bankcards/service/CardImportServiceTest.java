@@ -0,0 +1,200 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.dto.CardFileFormat;
+import com.example.bankcards.dto.CardImportErrorDto;
+import com.example.bankcards.dto.CardImportResultDto;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CryptoConverter;
+import com.example.bankcards.util.CryptoEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoEngine.class, CryptoConverter.class})
+@EnableConfigurationProperties(CryptoProperties.class)
+@TestPropertySource(properties = {
+        "app.crypto.secret=TestSecretKey123",
+        "app.crypto.blind-index-secret=test-blind-index-secret",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+class CardImportServiceTest {
+
+    private static final String EXPIRY = LocalDate.now().plusYears(3).toString();
+    // Outside the first ranges handed out by cards_seq, like rows that predate the sequence in production.
+    private static final long EXISTING_CARD_ID = 1_000_000;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CryptoEngine cryptoEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM cards");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, card_number_hash, expiry_date, status, balance, user_id) "
+                        + "VALUES (?, ?, ?, DATE '2030-01-01', 'ACTIVE', 0, 1)",
+                EXISTING_CARD_ID, cryptoEngine.encrypt("4000000000000001"), cryptoEngine.blindIndex("4000000000000001"));
+    }
+
+    private CardImportService importService(int chunkSize, int maxReportedErrors) {
+        return importService(chunkSize, maxReportedErrors, event -> {
+        });
+    }
+
+    private CardImportService importService(int chunkSize, int maxReportedErrors, ApplicationEventPublisher eventPublisher) {
+        return new CardImportService(cardRepository, userRepository, cryptoEngine,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper().findAndRegisterModules(),
+                new TransactionTemplate(transactionManager), entityManager, eventPublisher, chunkSize, maxReportedErrors);
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importCards_fromCsv_shouldSaveValidRowsAndReportFailuresByLine() throws Exception {
+        String csv = "userId,cardNumber,expiryDate\n"
+                + "1,4000000000000002," + EXPIRY + "\n"
+                + "1,4000000000000001," + EXPIRY + "\n"
+                + "99,4000000000000003," + EXPIRY + "\n"
+                + "1,4000000000000002," + EXPIRY + "\n"
+                + "1,40000000000,"  + EXPIRY + "\n"
+                + "1,4000000000000004,not-a-date\n"
+                + "\n"
+                + "1,4000000000000005," + EXPIRY + "\n";
+
+        CardImportResultDto result = importService(10, 100).importCards(input(csv), CardFileFormat.CSV);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(5);
+        assertThat(result.getErrors()).extracting(CardImportErrorDto::getLine)
+                .containsExactlyInAnyOrder(3L, 4L, 5L, 6L, 7L);
+        assertThat(result.getErrors()).extracting(CardImportErrorDto::getError).contains(
+                "Card ending with 0001 already exists.",
+                "User with ID 99 not found.",
+                "Card number is already used on line 2.",
+                "Card number must be 16 digits",
+                "Expiry date must be in yyyy-MM-dd format.");
+        assertThat(cardRepository.existsByCardNumberHash(cryptoEngine.blindIndex("4000000000000002"))).isTrue();
+        assertThat(cardRepository.existsByCardNumberHash(cryptoEngine.blindIndex("4000000000000005"))).isTrue();
+        assertThat(cardRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void importCards_fromNdjson_shouldInsertChunksInJdbcBatches() throws Exception {
+        int rows = 120;
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append(String.format("{\"cardNumber\":\"5000%012d\",\"expiryDate\":\"%s\",\"userId\":1}%n", i, EXPIRY));
+        }
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CardImportResultDto result = importService(50, 100).importCards(input(ndjson.toString()), CardFileFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(rows);
+        assertThat(result.getFailed()).isZero();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(rows);
+        // Per chunk: duplicate lookup, owner lookup, one or two sequence calls and one batched insert.
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3 * 5);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM cards WHERE id <> ? ORDER BY id", Long.class,
+                EXISTING_CARD_ID);
+        assertThat(ids).hasSize(rows).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void importCards_whenRequestHoldsAnEntityManager_shouldClearItAfterEveryChunk() throws Exception {
+        int rows = 120;
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append(String.format("{\"cardNumber\":\"6000%012d\",\"expiryDate\":\"%s\",\"userId\":1}%n", i, EXPIRY));
+        }
+        // Binds an EntityManager to the thread the way open-in-view does, so the chunk transactions join it.
+        EntityManagerFactory entityManagerFactory = entityManager.getEntityManagerFactory();
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        List<Integer> managedAfterChunk = new ArrayList<>();
+        try {
+            CardImportResultDto result = importService(50, 100, event -> managedAfterChunk.add(
+                    requestEntityManager.unwrap(Session.class).getStatistics().getEntityCount()))
+                    .importCards(input(ndjson.toString()), CardFileFormat.NDJSON);
+
+            assertThat(result.getImported()).isEqualTo(rows);
+            assertThat(managedAfterChunk).containsExactly(0, 0, 0);
+            assertThat(requestEntityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEntityManager.close();
+        }
+    }
+
+    @Test
+    void importCards_whenManyRowsFail_shouldCapTheErrorList() throws Exception {
+        String ndjson = "{not json}\n"
+                + "{\"cardNumber\":\"4000000000000009\"}\n"
+                + "{\"cardNumber\":\"4000000000000001\",\"expiryDate\":\"" + EXPIRY + "\",\"userId\":1}\n";
+
+        CardImportResultDto result = importService(10, 2).importCards(input(ndjson), CardFileFormat.NDJSON);
+
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).hasSize(2);
+        assertThat(result.isErrorsTruncated()).isTrue();
+    }
+
+    @Test
+    void importCards_whenCsvHeaderIsMissingColumns_shouldRejectTheFile() {
+        assertThatThrownBy(() -> importService(10, 10)
+                .importCards(input("cardNumber,userId\n4000000000000002,1\n"), CardFileFormat.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepositoryCustom.CardView;
+import com.example.bankcards.util.CryptoConverter;
+import com.example.bankcards.util.CryptoEngine;
+import com.example.bankcards.util.ScrollCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@Import({CardServiceImpl.class, CardBalanceStripeRepository.class, CryptoEngine.class, CryptoConverter.class,
+        SimpleMeterRegistry.class})
+@EnableConfigurationProperties(CryptoProperties.class)
+@TestPropertySource(properties = {
+        "app.crypto.secret=TestSecretKey123",
+        "app.crypto.blind-index-secret=test-blind-index-secret"
+})
+class CardKeysetPaginationTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CryptoEngine cryptoEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (2, 'other', 'secret')");
+        insertCard(11, 1, "ACTIVE");
+        insertCard(12, 2, "ACTIVE");
+        insertCard(13, 1, "BLOCKED");
+        insertCard(14, 1, "ACTIVE");
+        insertCard(15, 1, "ACTIVE");
+        insertCard(16, 2, "BLOCKED");
+    }
+
+    private void insertCard(long id, long userId, String status) {
+        String cardNumber = "11112222333344" + id;
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, card_number_hash, expiry_date, status, balance, user_id) "
+                        + "VALUES (?, ?, ?, DATE '2030-01-01', ?, 0, ?)",
+                id, cryptoEngine.encrypt(cardNumber), cryptoEngine.blindIndex(cardNumber), status, userId);
+    }
+
+    @Test
+    void scrollCardsByUserId_shouldWalkOwnCardsInIdOrder() {
+        Window<CardView> first = cardService.scrollCardsByUserId(1L, null, "", 2);
+        String cursor = ScrollCursor.encode(first);
+        Window<CardView> second = cardService.scrollCardsByUserId(1L, null, cursor, 2);
+
+        assertThat(first.getContent()).extracting(CardView::id).containsExactly(11L, 13L);
+        assertThat(cursor).isNotNull();
+        assertThat(second.getContent()).extracting(CardView::id).containsExactly(14L, 15L);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(ScrollCursor.encode(second)).isNull();
+    }
+
+    @Test
+    void scrollAllCards_shouldApplyStatusFilterAcrossPages() {
+        Window<CardView> first = cardService.scrollAllCards(null, CardStatus.ACTIVE, null, 3);
+        Window<CardView> second = cardService.scrollAllCards(null, CardStatus.ACTIVE, ScrollCursor.encode(first), 3);
+
+        assertThat(first.getContent()).extracting(CardView::id).containsExactly(11L, 12L, 14L);
+        assertThat(second.getContent()).extracting(CardView::id).containsExactly(15L);
+        assertThat(cardService.scrollAllCards(2L, CardStatus.BLOCKED, "", 10).getContent())
+                .extracting(CardView::id).containsExactly(16L);
+    }
+
+    @Test
+    void scrollAllCards_whenCursorIsMalformed_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> cardService.scrollAllCards(null, null, "not-a-cursor!", 10));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CacheConfig;
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.entity.CardStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig({CacheConfig.class, CardListCache.class, CardListCacheTest.Metrics.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CardListCacheTest {
+
+    @Configuration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CardListCache cardListCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Page<CardResponseDto> load(Long userId, long version, CardStatus status, Pageable pageable) {
+        return cardListCache.getPage(userId, version, status, pageable, () -> {
+            loads.incrementAndGet();
+            CardResponseDto card = new CardResponseDto();
+            card.setId(userId);
+            return new PageImpl<>(List.of(card), pageable, 1);
+        });
+    }
+
+    @Test
+    void getPage_whenRequestedAgain_shouldServeCachedPageAndRecordItsAge() {
+        Page<CardResponseDto> first = load(1L, 0, null, PageRequest.of(0, 10));
+        Page<CardResponseDto> second = load(1L, 0, null, PageRequest.of(0, 10));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cards.list.cache.hit.age").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getPage_shouldKeepStatusFiltersAndPagesApart() {
+        load(1L, 0, null, PageRequest.of(0, 10));
+        load(1L, 0, CardStatus.ACTIVE, PageRequest.of(0, 10));
+        load(1L, 0, null, PageRequest.of(1, 10));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void getPage_whenVersionChanges_shouldReloadOnlyThatUsersPage() {
+        load(1L, 0, null, PageRequest.of(0, 10));
+        load(2L, 0, null, PageRequest.of(0, 10));
+
+        load(1L, 1, null, PageRequest.of(0, 10));
+        load(2L, 0, null, PageRequest.of(0, 10));
+
+        assertThat(loads).hasValue(3);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.dto.CardResponseDto;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardMapper;
+import com.example.bankcards.util.CryptoConverter;
+import com.example.bankcards.util.CryptoEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({CardServiceImpl.class, CardBalanceStripeRepository.class, CardMapper.class, CryptoEngine.class,
+        CryptoConverter.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(CryptoProperties.class)
+@TestPropertySource(properties = {
+        "app.crypto.secret=TestSecretKey123",
+        "app.crypto.blind-index-secret=test-blind-index-secret",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CardListingStatementCountTest {
+
+    private static final int OWNERS = 5;
+    private static final int CARDS_PER_OWNER = 4;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private CryptoEngine cryptoEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        long cardId = 1;
+        for (long userId = 1; userId <= OWNERS; userId++) {
+            jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (?, ?, 'secret')", userId, "owner-" + userId);
+            jdbcTemplate.update("INSERT INTO users_roles (user_id, role_id) "
+                    + "SELECT ?, id FROM roles WHERE name = 'ROLE_USER'", userId);
+            for (int i = 0; i < CARDS_PER_OWNER; i++, cardId++) {
+                String cardNumber = String.format("4000%012d", cardId);
+                jdbcTemplate.update("INSERT INTO cards (id, card_number, card_number_hash, expiry_date, status, balance, user_id) "
+                                + "VALUES (?, ?, ?, DATE '2030-01-01', 'ACTIVE', 100, ?)",
+                        cardId, cryptoEngine.encrypt(cardNumber), cryptoEngine.blindIndex(cardNumber), userId);
+            }
+        }
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private long statementsFor(Runnable listing) {
+        entityManager.clear();
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void getAllCards_shouldLoadPageWithOwnersInOneQueryPlusCount() {
+        PageRequest firstPage = PageRequest.of(0, 20, Sort.by("id"));
+
+        long statements = statementsFor(() -> {
+            Page<CardResponseDto> page = cardMapper.toDtoPage(cardService.getAllCards(null, null, PageRequest.of(0, 10)));
+            assertThat(page.getContent()).hasSize(10).allSatisfy(card -> assertThat(card.getUsername()).startsWith("owner-"));
+            assertThat(page.getTotalElements()).isEqualTo(OWNERS * CARDS_PER_OWNER);
+        });
+        long entityStatements = statementsFor(() -> cardRepository.findAll(firstPage).map(cardMapper::toDto));
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(entityStatements).isGreaterThanOrEqualTo(1 + OWNERS);
+    }
+
+    @Test
+    void getCardsByUserId_whenPageIsNotFull_shouldSkipCountQuery() {
+        long statements = statementsFor(() -> {
+            Page<CardResponseDto> page = cardMapper.toDtoPage(cardService.getCardsByUserId(2L, null, PageRequest.of(0, 20)));
+            assertThat(page.getContent()).hasSize(CARDS_PER_OWNER)
+                    .allSatisfy(card -> assertThat(card.getCardNumberMasked()).startsWith("**** **** **** "));
+        });
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void exportCards_shouldStreamEveryRowInOneQueryWithoutManagedEntities() {
+        List<Long> exported = new ArrayList<>();
+        Session session = entityManager.unwrap(Session.class);
+
+        long statements = statementsFor(() -> cardService.exportCards(null, null, card -> {
+            exported.add(card.id());
+            assertThat(session.getStatistics().getEntityCount()).isZero();
+        }));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(exported).hasSize(OWNERS * CARDS_PER_OWNER).isSorted();
+    }
+
+    @Test
+    void scrollAllCards_shouldUseOneQueryPerWindow() {
+        long statements = statementsFor(() ->
+                assertThat(cardMapper.toCursorPage(cardService.scrollAllCards(null, null, "", 10)).getNextCursor()).isNotNull());
+
+        assertThat(statements).isEqualTo(1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.util.CryptoEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardReencryptionJobTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CryptoEngine oldEngine;
+    private CryptoEngine rotatedEngine;
+    private CryptoProperties rotatedProperties;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM cards");
+        jdbcTemplate.update("DELETE FROM users");
+
+        CryptoProperties oldProperties = new CryptoProperties();
+        oldProperties.setSecret("TestSecretKey123");
+        oldProperties.setBlindIndexSecret("test-blind-index-secret");
+        oldEngine = new CryptoEngine(oldProperties);
+
+        rotatedProperties = new CryptoProperties();
+        rotatedProperties.setSecret("TestSecretKey123");
+        rotatedProperties.setBlindIndexSecret("test-blind-index-secret");
+        rotatedProperties.setKeys(Map.of(2, "RotatedSecret456"));
+        rotatedProperties.getReencryption().setBatchSize(2);
+        rotatedProperties.getReencryption().setPauseMs(0);
+        rotatedEngine = new CryptoEngine(rotatedProperties);
+
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        for (int i = 1; i <= 5; i++) {
+            String cardNumber = "111122223333444" + i;
+            jdbcTemplate.update("INSERT INTO cards (id, card_number, card_number_hash, expiry_date, status, balance, user_id) "
+                            + "VALUES (?, ?, ?, DATE '2030-01-01', 'ACTIVE', 0, 1)",
+                    i, oldEngine.encrypt(cardNumber), i % 2 == 0 ? null : oldEngine.blindIndex(cardNumber));
+        }
+    }
+
+    @Test
+    void reencryptAll_shouldMoveEveryRowToActiveKeyAndFillMissingHashes() {
+        CardReencryptionJob job = new CardReencryptionJob(jdbcTemplate, new TransactionTemplate(transactionManager),
+                rotatedEngine, rotatedProperties);
+
+        long updated = job.reencryptAll();
+
+        assertThat(updated).isEqualTo(5);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, card_number, card_number_hash FROM cards ORDER BY id");
+        for (Map<String, Object> row : rows) {
+            String expectedNumber = "111122223333444" + row.get("ID");
+            String cardNumber = (String) row.get("CARD_NUMBER");
+            assertThat(cardNumber).startsWith("v2:");
+            assertThat(rotatedEngine.decrypt(cardNumber)).isEqualTo(expectedNumber);
+            assertThat(row.get("CARD_NUMBER_HASH")).isEqualTo(rotatedEngine.blindIndex(expectedNumber));
+        }
+        assertThat(job.reencryptAll()).isZero();
+    }
+}
@@ -1,25 +1,46 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemStatus;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResponseDto;
 import com.example.bankcards.dto.CardTransferRequestDto;
 import com.example.bankcards.dto.CreateCardRequestDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardLedgerEntry;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardAlreadyExistsException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardBalanceStripeRepository.StripeDelta;
+import com.example.bankcards.repository.CardLedgerRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CryptoEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,7 +51,17 @@ class CardServiceImplTest {
     @Mock
     private CardRepository cardRepository;
     @Mock
+    private CardLedgerRepository cardLedgerRepository;
+    @Mock
+    private CardBalanceStripeRepository stripeRepository;
+    @Mock
     private UserRepository userRepository;
+    @Mock
+    private CryptoEngine cryptoEngine;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private CardServiceImpl cardService;
@@ -58,21 +89,59 @@ class CardServiceImplTest {
         destinationCard.setBalance(new BigDecimal("500.00"));
     }
 
+    @SuppressWarnings("unchecked")
+    private List<CardLedgerEntry> captureLedgerEntries() {
+        ArgumentCaptor<List<CardLedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cardLedgerRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
     @Test
-    void whenTransferSuccessful_thenBalancesShouldBeUpdated() {
+    void whenTransferSuccessful_thenDebitAndCreditAreAppendedToLedger() {
         CardTransferRequestDto requestDto = new CardTransferRequestDto();
         requestDto.setFromCardId(10L);
         requestDto.setToCardId(20L);
         requestDto.setAmount(new BigDecimal("100.00"));
 
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(sourceCard));
-        when(cardRepository.findById(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findCurrentBalance(10L)).thenReturn(new BigDecimal("1000.00"));
 
         cardService.transferBetweenCards(requestDto, "testuser");
 
-        assertEquals(new BigDecimal("900.00"), sourceCard.getBalance());
-        assertEquals(new BigDecimal("600.00"), destinationCard.getBalance());
-        verify(cardRepository, times(2)).save(any(Card.class));
+        List<CardLedgerEntry> entries = captureLedgerEntries();
+        assertEquals(2, entries.size());
+        assertEquals(sourceCard, entries.get(0).getCard());
+        assertEquals(new BigDecimal("-100.00"), entries.get(0).getAmount());
+        assertEquals(destinationCard, entries.get(1).getCard());
+        assertEquals(new BigDecimal("100.00"), entries.get(1).getAmount());
+        assertEquals(entries.get(0).getTransferId(), entries.get(1).getTransferId());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(Set.of(1L)));
+        assertEquals(1, transfers("success"));
+    }
+
+    @Test
+    void whenTransferToLowerCardId_thenRowsAreStillLockedInAscendingIdOrder() {
+        CardTransferRequestDto requestDto = new CardTransferRequestDto();
+        requestDto.setFromCardId(20L);
+        requestDto.setToCardId(10L);
+        requestDto.setAmount(new BigDecimal("100.00"));
+
+        when(cardRepository.findByIdForShare(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForUpdate(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findCurrentBalance(20L)).thenReturn(new BigDecimal("500.00"));
+
+        cardService.transferBetweenCards(requestDto, "testuser");
+
+        InOrder lockOrder = inOrder(cardRepository);
+        lockOrder.verify(cardRepository).findByIdForShare(10L);
+        lockOrder.verify(cardRepository).findByIdForUpdate(20L);
+        lockOrder.verify(cardRepository).findCurrentBalance(20L);
+        List<CardLedgerEntry> entries = captureLedgerEntries();
+        assertEquals(new BigDecimal("-100.00"), entries.get(0).getAmount());
+        assertEquals(new BigDecimal("100.00"), entries.get(1).getAmount());
+        verify(cardRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -82,14 +151,169 @@ class CardServiceImplTest {
         requestDto.setToCardId(20L);
         requestDto.setAmount(new BigDecimal("2000.00"));
 
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(sourceCard));
-        when(cardRepository.findById(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findCurrentBalance(10L)).thenReturn(new BigDecimal("1000.00"));
 
         assertThrows(IllegalStateException.class, () -> {
             cardService.transferBetweenCards(requestDto, "testuser");
         });
 
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardLedgerRepository, never()).saveAll(anyList());
+        assertEquals(1, transfers("insufficient_funds"));
+        assertEquals(0, transfers("success"));
+    }
+
+    @Test
+    void whenTransferRunsInTransaction_thenSuccessIsCountedOnlyAfterCommit() {
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findCurrentBalance(10L)).thenReturn(new BigDecimal("1000.00"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cardService.transferBetweenCards(transfer(10L, 20L, "100.00"), "testuser");
+            assertEquals(0, transfers("success"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, transfers("success"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private double transfers(String outcome) {
+        return meterRegistry.get("cards.transfers").tag("outcome", outcome).counter().count();
+    }
+
+    private static CardTransferRequestDto transfer(Long from, Long to, String amount) {
+        CardTransferRequestDto requestDto = new CardTransferRequestDto();
+        requestDto.setFromCardId(from);
+        requestDto.setToCardId(to);
+        requestDto.setAmount(new BigDecimal(amount));
+        return requestDto;
+    }
+
+    private BatchTransferRequestDto batch(BatchTransferMode mode, CardTransferRequestDto... transfers) {
+        BatchTransferRequestDto requestDto = new BatchTransferRequestDto();
+        requestDto.setMode(mode);
+        requestDto.setTransfers(List.of(transfers));
+
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(sourceCard, destinationCard));
+        when(cardRepository.findCurrentBalances(any())).thenReturn(List.of(
+                balanceView(10L, "1000.00"), balanceView(20L, "500.00")));
+        return requestDto;
+    }
+
+    private static CardRepository.CardBalanceView balanceView(Long id, String balance) {
+        return new CardRepository.CardBalanceView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+        };
+    }
+
+    @Test
+    void whenBatchIsValid_thenAllEntriesAreInsertedInOneBatch() {
+        BatchTransferRequestDto requestDto = batch(BatchTransferMode.ATOMIC,
+                transfer(10L, 20L, "800.00"), transfer(20L, 10L, "1300.00"));
+
+        BatchTransferResponseDto response = cardService.transferBatch(requestDto, "testuser");
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(0, response.getFailed());
+        ArgumentCaptor<List<CardLedgerEntry>> captor = ArgumentCaptor.captor();
+        verify(cardLedgerRepository).insertAll(captor.capture());
+        assertEquals(4, captor.getValue().size());
+        verify(cardRepository, never()).findByIdForUpdate(anyLong());
+    }
+
+    @Test
+    void whenAtomicBatchHasInvalidItem_thenNothingIsApplied() {
+        BatchTransferRequestDto requestDto = batch(BatchTransferMode.ATOMIC,
+                transfer(10L, 20L, "800.00"), transfer(10L, 20L, "300.00"));
+
+        BatchTransferResponseDto response = cardService.transferBatch(requestDto, "testuser");
+
+        assertEquals(BatchTransferItemStatus.NOT_APPLIED, response.getResults().get(0).getStatus());
+        assertNull(response.getResults().get(0).getTransferId());
+        assertEquals(BatchTransferItemStatus.FAILED, response.getResults().get(1).getStatus());
+        assertEquals("Insufficient funds on the source card.", response.getResults().get(1).getError());
+        verify(cardLedgerRepository, never()).insertAll(anyList());
+        assertEquals(0, transfers("success"));
+    }
+
+    @Test
+    void whenBestEffortBatchHasInvalidItems_thenValidItemsAreApplied() {
+        BatchTransferRequestDto requestDto = batch(BatchTransferMode.BEST_EFFORT,
+                transfer(10L, 20L, "800.00"), transfer(10L, 20L, "300.00"), transfer(10L, 99L, "1.00"));
+
+        BatchTransferResponseDto response = cardService.transferBatch(requestDto, "testuser");
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        assertNotNull(response.getResults().get(0).getTransferId());
+        assertEquals("Destination card with ID 99 not found.", response.getResults().get(2).getError());
+        ArgumentCaptor<List<CardLedgerEntry>> captor = ArgumentCaptor.captor();
+        verify(cardLedgerRepository).insertAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(1, transfers("success"));
+        assertEquals(1, transfers("insufficient_funds"));
+        assertEquals(1, transfers("card_not_found"));
+    }
+
+    private static Card stripedCard(Card card, int stripeCount) {
+        ReflectionTestUtils.setField(card, "stripeCount", stripeCount);
+        return card;
+    }
+
+    @Test
+    void whenDestinationIsStriped_thenCreditGoesToStripeAndLedger() {
+        stripedCard(destinationCard, 4);
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findCurrentBalance(10L)).thenReturn(new BigDecimal("1000.00"));
+
+        cardService.transferBetweenCards(transfer(10L, 20L, "100.00"), "testuser");
+
+        verify(stripeRepository).credit(20L, 4, new BigDecimal("100.00"));
+        verify(stripeRepository, never()).debit(anyLong(), any());
+        assertEquals(2, captureLedgerEntries().size());
+    }
+
+    @Test
+    void whenStripedSourceHasTooLittleFunds_thenThrowInsufficientFunds() {
+        stripedCard(sourceCard, 4);
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(stripeRepository.debit(10L, new BigDecimal("100.00"))).thenReturn(false);
+
+        assertThrows(InsufficientFundsException.class,
+                () -> cardService.transferBetweenCards(transfer(10L, 20L, "100.00"), "testuser"));
+
+        verify(cardRepository, never()).findCurrentBalance(anyLong());
+        verify(cardLedgerRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void whenBatchDebitsStripedSource_thenAmountIsSplitAcrossStripesInOrder() {
+        stripedCard(sourceCard, 4);
+        BatchTransferRequestDto requestDto = batch(BatchTransferMode.ATOMIC, transfer(10L, 20L, "50.00"));
+        BigDecimal quarter = new BigDecimal("25.00");
+        when(stripeRepository.findStripes(List.of(10L))).thenReturn(Map.of(10L,
+                new BigDecimal[]{quarter, quarter, quarter, quarter}));
+
+        BatchTransferResponseDto response = cardService.transferBatch(requestDto, "testuser");
+
+        assertEquals(1, response.getSucceeded());
+        verify(stripeRepository).applyDeltas(List.of(
+                new StripeDelta(10L, 0, quarter.negate()), new StripeDelta(10L, 1, quarter.negate())));
     }
 
     @Test
@@ -99,12 +323,13 @@ class CardServiceImplTest {
         requestDto.setToCardId(20L);
         requestDto.setAmount(new BigDecimal("100.00"));
 
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(sourceCard));
-        when(cardRepository.findById(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
 
         assertThrows(AccessDeniedException.class, () -> {
             cardService.transferBetweenCards(requestDto, "anotherUser");
         });
+        assertEquals(1, transfers("access_denied"));
     }
 
     @Test
@@ -114,7 +339,8 @@ class CardServiceImplTest {
         requestDto.setToCardId(20L);
         requestDto.setAmount(new BigDecimal("100.00"));
 
-        when(cardRepository.findById(99L)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForShare(20L)).thenReturn(Optional.of(destinationCard));
+        when(cardRepository.findByIdForUpdate(99L)).thenReturn(Optional.empty());
 
         assertThrows(CardNotFoundException.class, () -> {
             cardService.transferBetweenCards(requestDto, "testuser");
@@ -128,7 +354,8 @@ class CardServiceImplTest {
         request.setUserId(1L);
         request.setExpiryDate(LocalDate.now().plusYears(1));
 
-        when(cardRepository.existsByCardNumber(request.getCardNumber())).thenReturn(false);
+        when(cryptoEngine.blindIndex("1111222233334444")).thenReturn("card-number-hash");
+        when(cardRepository.existsByCardNumberHash("card-number-hash")).thenReturn(false);
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -139,7 +366,9 @@ class CardServiceImplTest {
         assertEquals(CardStatus.ACTIVE, savedCard.getStatus());
         assertEquals(BigDecimal.ZERO, savedCard.getBalance());
         assertEquals("1111222233334444", savedCard.getCardNumber());
+        assertEquals("card-number-hash", savedCard.getCardNumberHash());
         verify(cardRepository, times(1)).save(any(Card.class));
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(Set.of(1L)));
     }
 
     @Test
@@ -148,7 +377,8 @@ class CardServiceImplTest {
         request.setCardNumber("1111222233334444");
         request.setUserId(1L);
 
-        when(cardRepository.existsByCardNumber(request.getCardNumber())).thenReturn(true);
+        when(cryptoEngine.blindIndex("1111222233334444")).thenReturn("card-number-hash");
+        when(cardRepository.existsByCardNumberHash("card-number-hash")).thenReturn(true);
 
         assertThrows(CardAlreadyExistsException.class, () -> {
             cardService.createCard(request);
@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ReadReplicaRoutingDataSource;
+import com.example.bankcards.repository.CardSetVersionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardSetVersionServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CardSetVersionService versionService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM cards");
+        jdbcTemplate.update("DELETE FROM card_set_versions");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'first', 'secret')");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (2, 'second', 'secret')");
+
+        meterRegistry = new SimpleMeterRegistry();
+        versionService = new CardSetVersionService(new CardSetVersionRepository(jdbcTemplate), transactionManager,
+                meterRegistry, Optional.empty(), 100, 60_000, 4);
+    }
+
+    private CardSetVersionService versionServiceBehindReplica(ReadReplicaRoutingDataSource replicaRouting) {
+        return new CardSetVersionService(new CardSetVersionRepository(jdbcTemplate), transactionManager,
+                new SimpleMeterRegistry(), Optional.of(replicaRouting), 100, 60_000, 4);
+    }
+
+    private void change(Set<Long> userIds, boolean rollback) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            CardsChangedEvent event = new CardsChangedEvent(userIds);
+            versionService.bumpVersions(event);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versionService.onCardsChanged(event);
+                }
+            });
+            if (rollback) {
+                status.setRollbackOnly();
+            }
+        });
+    }
+
+    @Test
+    void getVersion_afterCommittedChange_shouldReturnBumpedVersion() {
+        assertThat(versionService.getVersion(1L)).isZero();
+
+        change(Set.of(1L), false);
+
+        assertThat(versionService.getVersion(1L)).isEqualTo(1);
+        assertThat(versionService.getVersion(2L)).isZero();
+        assertThat(versionService.getGlobalVersion()).isEqualTo(1);
+        assertThat(meterRegistry.get("cards.version.changes").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getVersion_afterRolledBackChange_shouldKeepVersion() {
+        change(Set.of(1L, 2L), true);
+
+        assertThat(versionService.getVersion(1L)).isZero();
+        assertThat(versionService.getGlobalVersion()).isZero();
+    }
+
+    @Test
+    void getVersion_shouldServeCachedValueUntilOwnChangeCommits() {
+        assertThat(versionService.getVersion(1L)).isZero();
+
+        jdbcTemplate.update("INSERT INTO card_set_versions (scope_id, stripe_no, version) VALUES (1, 0, 5)");
+        assertThat(versionService.getVersion(1L)).isZero();
+
+        change(Set.of(1L), false);
+        assertThat(versionService.getVersion(1L)).isEqualTo(6);
+    }
+
+    @Test
+    void getGlobalVersion_shouldServeCachedValueUntilOwnChangeCommits() {
+        change(Set.of(1L), false);
+        assertThat(versionService.getGlobalVersion()).isEqualTo(1);
+
+        jdbcTemplate.update("UPDATE card_set_versions SET version = version + 10 WHERE scope_id = 0 AND stripe_no = 0");
+        assertThat(versionService.getGlobalVersion()).isEqualTo(1);
+
+        change(Set.of(2L), false);
+        assertThat(versionService.getGlobalVersion()).isEqualTo(12);
+    }
+
+    @Test
+    void getVersion_whenReadFromReplica_shouldNotCacheIt() {
+        ReadReplicaRoutingDataSource replicaRouting = mock(ReadReplicaRoutingDataSource.class);
+        when(replicaRouting.isCurrentUserPinned()).thenReturn(false);
+        CardSetVersionService service = versionServiceBehindReplica(replicaRouting);
+        assertThat(service.getVersion(1L)).isZero();
+        assertThat(service.getGlobalVersion()).isZero();
+
+        // The replica catching up on a change committed on the primary.
+        jdbcTemplate.update("INSERT INTO card_set_versions (scope_id, stripe_no, version) VALUES (1, 0, 1), (0, 0, 1)");
+
+        assertThat(service.getVersion(1L)).isEqualTo(1);
+        assertThat(service.getGlobalVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void getVersion_whenReadFromPrimaryBehindReplica_shouldCacheIt() {
+        ReadReplicaRoutingDataSource replicaRouting = mock(ReadReplicaRoutingDataSource.class);
+        when(replicaRouting.isCurrentUserPinned()).thenReturn(true);
+        CardSetVersionService service = versionServiceBehindReplica(replicaRouting);
+        assertThat(service.getVersion(1L)).isZero();
+
+        jdbcTemplate.update("INSERT INTO card_set_versions (scope_id, stripe_no, version) VALUES (1, 0, 5)");
+
+        assertThat(service.getVersion(1L)).isZero();
+    }
+
+    @Test
+    void bumpVersions_whileAnotherChangeIsOpen_shouldUseAnotherStripe() throws Exception {
+        change(Set.of(1L), false);
+
+        // Holds one stripe of user 1 and of the global version, the way an in-flight transfer does before commit.
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            versionService.bumpVersions(new CardsChangedEvent(Set.of(1L)));
+            CompletableFuture<Void> other = CompletableFuture.runAsync(() -> change(Set.of(1L), false));
+            assertThat(other).succeedsWithin(Duration.ofSeconds(5));
+        });
+
+        assertThat(versionService.getVersion(1L)).isEqualTo(3);
+        assertThat(versionService.getGlobalVersion()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM card_set_versions WHERE scope_id = 1 AND version > 0", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void getVersion_forUnknownUser_shouldBeZero() {
+        assertThat(versionService.getVersion(99L)).isZero();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CryptoProperties;
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSetVersionRepository;
+import com.example.bankcards.util.CryptoConverter;
+import com.example.bankcards.util.CryptoEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({CardServiceImpl.class, CardBalanceStripeRepository.class, CardSetVersionService.class,
+        CardSetVersionRepository.class, CryptoEngine.class, CryptoConverter.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(CryptoProperties.class)
+@TestPropertySource(properties = {
+        "app.crypto.secret=TestSecretKey123",
+        "app.crypto.blind-index-secret=test-blind-index-secret"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardTransferConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int TRANSFERS_PER_THREAD = 25;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CryptoEngine cryptoEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CardSetVersionService versionService;
+
+    @Autowired
+    private CardBalanceStripeRepository stripeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM card_ledger");
+        jdbcTemplate.update("DELETE FROM cards");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM card_set_versions");
+        jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'secret')");
+        insertCard(1, "1111222233334441");
+        insertCard(2, "1111222233334442");
+    }
+
+    private void insertCard(long id, String cardNumber) {
+        jdbcTemplate.update("INSERT INTO cards (id, card_number, card_number_hash, expiry_date, status, balance, user_id) "
+                        + "VALUES (?, ?, ?, DATE '2030-01-01', 'ACTIVE', 1000, 1)",
+                id, cryptoEngine.encrypt(cardNumber), cryptoEngine.blindIndex(cardNumber));
+    }
+
+    @Test
+    void transferBetweenCards_whenOppositeTransfersRunConcurrently_shouldNotLoseUpdates() throws Exception {
+        runOppositeTransfers();
+
+        assertThat(cardRepository.findCurrentBalance(1L)).isEqualByComparingTo("1000");
+        assertThat(cardRepository.findCurrentBalance(2L)).isEqualByComparingTo("1000");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_ledger", Integer.class))
+                .isEqualTo(2 * THREADS * TRANSFERS_PER_THREAD);
+    }
+
+    @Test
+    void transferBetweenCards_whenCardIsStriped_shouldKeepBalanceAcrossStripes() throws Exception {
+        cardService.updateBalanceStripes(2L, 4);
+
+        runOppositeTransfers();
+
+        assertThat(cardRepository.findCurrentBalance(1L)).isEqualByComparingTo("1000");
+        assertThat(cardRepository.findCurrentBalance(2L)).isEqualByComparingTo("1000");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM card_balance_stripes WHERE card_id = 2", Integer.class)).isEqualTo(4);
+
+        Card card = cardService.updateBalanceStripes(2L, 1);
+
+        assertThat(card.getBalance()).isEqualByComparingTo("1000");
+        assertThat(card.isStriped()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_balance_stripes", Integer.class)).isZero();
+    }
+
+    @Test
+    void transferBetweenCards_whenNoSingleStripeCoversAmount_shouldDebitSeveralStripes() {
+        cardService.updateBalanceStripes(2L, 4);
+        jdbcTemplate.update("UPDATE card_balance_stripes SET balance = 25 WHERE card_id = 2");
+
+        CardTransferRequestDto requestDto = transfer(2, 1);
+        requestDto.setAmount(new BigDecimal("60"));
+        cardService.transferBetweenCards(requestDto, "owner");
+
+        assertThat(cardRepository.findCurrentBalance(2L)).isEqualByComparingTo("40");
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT balance FROM card_balance_stripes WHERE card_id = 2 ORDER BY stripe_no", BigDecimal.class))
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal("15"), new BigDecimal("25"));
+    }
+
+    @Test
+    void credit_whenCreditsToStripedCardOverlap_shouldNotWaitForEachOtherOnVersionBump() throws Exception {
+        cardService.updateBalanceStripes(2L, THREADS);
+
+        // The writes of a credit to a striped card: a balance stripe, then the version bump before commit. H2 takes
+        // the destination FOR SHARE lock as an exclusive one, so transferBetweenCards itself cannot overlap here.
+        // Every credit then waits before commit until all of them got there, so the test only passes if the credits
+        // hold their balance and version rows at the same time.
+        CyclicBarrier beforeCommit = new CyclicBarrier(THREADS);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> transaction.executeWithoutResult(status -> {
+                stripeRepository.credit(2L, THREADS, BigDecimal.ONE);
+                eventPublisher.publishEvent(new CardsChangedEvent(Set.of(1L)));
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        try {
+                            beforeCommit.await(10, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Credits did not overlap", e);
+                        }
+                    }
+                });
+            })));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(cardRepository.findCurrentBalance(2L)).isEqualByComparingTo(String.valueOf(1000 + THREADS));
+        assertThat(versionService.getVersion(1L)).isEqualTo(THREADS);
+        assertThat(versionService.getGlobalVersion()).isEqualTo(THREADS);
+    }
+
+    private void runOppositeTransfers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            long from = thread % 2 == 0 ? 1 : 2;
+            long to = from == 1 ? 2 : 1;
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    cardService.transferBetweenCards(transfer(from, to), "owner");
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static CardTransferRequestDto transfer(long from, long to) {
+        CardTransferRequestDto requestDto = new CardTransferRequestDto();
+        requestDto.setFromCardId(from);
+        requestDto.setToCardId(to);
+        requestDto.setAmount(BigDecimal.ONE);
+        return requestDto;
+    }
+}
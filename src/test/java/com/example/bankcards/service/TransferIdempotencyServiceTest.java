@@ -0,0 +1,145 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardTransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferIdempotencyServiceTest {
+
+    @Mock
+    private CardService cardService;
+    @Mock
+    private TransferIdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferIdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new TransferIdempotencyService(cardService, idempotencyKeyRepository,
+                new TransactionTemplate(transactionManager), 86_400_000, 100, 600_000);
+    }
+
+    private static CardTransferRequestDto request(String amount) {
+        CardTransferRequestDto requestDto = new CardTransferRequestDto();
+        requestDto.setFromCardId(10L);
+        requestDto.setToCardId(20L);
+        requestDto.setAmount(new BigDecimal(amount));
+        return requestDto;
+    }
+
+    private void stubSuccessfulTransfer() {
+        when(idempotencyKeyRepository.findByUsernameAndIdempotencyKey("testuser", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.saveAndFlush(any(TransferIdempotencyKey.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardService.transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser"))).thenReturn("transfer-1");
+    }
+
+    @Test
+    void whenKeyIsReplayed_thenStoredResultIsReturnedWithoutSecondTransfer() {
+        stubSuccessfulTransfer();
+
+        TransferResponseDto first = idempotencyService.transfer(request("100.00"), "testuser", "key-1");
+        TransferResponseDto replay = idempotencyService.transfer(request("100.00"), "testuser", "key-1");
+
+        assertThat(first.getTransferId()).isEqualTo("transfer-1");
+        assertThat(replay).isSameAs(first);
+        verify(cardService, times(1)).transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser"));
+        verify(idempotencyKeyRepository, times(1)).findByUsernameAndIdempotencyKey("testuser", "key-1");
+    }
+
+    @Test
+    void whenKeyIsStoredByAnotherInstance_thenTransferIsNotExecuted() {
+        TransferIdempotencyKey stored = new TransferIdempotencyKey("testuser", "key-1", 10L, 20L,
+                new BigDecimal("100.0000"), Instant.now());
+        stored.setTransferId("transfer-1");
+        when(idempotencyKeyRepository.findByUsernameAndIdempotencyKey("testuser", "key-1")).thenReturn(Optional.of(stored));
+
+        TransferResponseDto result = idempotencyService.transfer(request("100.00"), "testuser", "key-1");
+
+        assertThat(result.getTransferId()).isEqualTo("transfer-1");
+        verify(cardService, never()).transferBetweenCards(any(CardTransferRequestDto.class), anyString());
+    }
+
+    @Test
+    void whenKeyIsReusedForDifferentTransfer_thenThrowConflict() {
+        stubSuccessfulTransfer();
+        idempotencyService.transfer(request("100.00"), "testuser", "key-1");
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.transfer(request("200.00"), "testuser", "key-1"));
+        verify(cardService, times(1)).transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser"));
+    }
+
+    @Test
+    void whenSameKeyArrivesConcurrently_thenOnlyOneTransferRuns() throws Exception {
+        CountDownLatch transferStarted = new CountDownLatch(1);
+        CountDownLatch releaseTransfer = new CountDownLatch(1);
+        when(idempotencyKeyRepository.findByUsernameAndIdempotencyKey("testuser", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.saveAndFlush(any(TransferIdempotencyKey.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardService.transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser"))).thenAnswer(invocation -> {
+            transferStarted.countDown();
+            releaseTransfer.await(10, TimeUnit.SECONDS);
+            return "transfer-1";
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TransferResponseDto> first = executor.submit(
+                    () -> idempotencyService.transfer(request("100.00"), "testuser", "key-1"));
+            assertThat(transferStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<TransferResponseDto> second = executor.submit(
+                    () -> idempotencyService.transfer(request("100.00"), "testuser", "key-1"));
+
+            releaseTransfer.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS).getTransferId()).isEqualTo("transfer-1");
+            assertThat(second.get(10, TimeUnit.SECONDS).getTransferId()).isEqualTo("transfer-1");
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(cardService, times(1)).transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser"));
+    }
+
+    @Test
+    void whenTransferFails_thenKeyCanBeRetried() {
+        when(idempotencyKeyRepository.findByUsernameAndIdempotencyKey("testuser", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.saveAndFlush(any(TransferIdempotencyKey.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardService.transferBetweenCards(any(CardTransferRequestDto.class), eq("testuser")))
+                .thenThrow(new IllegalStateException("Insufficient funds on the source card."))
+                .thenReturn("transfer-2");
+
+        assertThrows(IllegalStateException.class,
+                () -> idempotencyService.transfer(request("100.00"), "testuser", "key-1"));
+        TransferResponseDto retry = idempotencyService.transfer(request("100.00"), "testuser", "key-1");
+
+        assertThat(retry.getTransferId()).isEqualTo("transfer-2");
+    }
+}
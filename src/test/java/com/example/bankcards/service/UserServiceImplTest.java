@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.HashSet;
@@ -35,6 +36,9 @@ class UserServiceImplTest {
     @Mock
     private RoleRepository roleRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -81,6 +85,7 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).findByUsername("newUser");
         verify(passwordEncoder, times(1)).encode("password123");
         verify(userRepository, times(1)).save(any(User.class));
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L, "newUser"));
     }
 
     @Test
@@ -107,7 +112,9 @@ class UserServiceImplTest {
         userService.assignAdminRole(1L);
 
         assertTrue(testUser.getRoles().contains(adminRole));
+        assertThat(testUser.getTokenVersion()).isEqualTo(1);
         verify(userRepository, times(1)).save(testUser);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L, "testuser"));
     }
 
     @Test
@@ -120,7 +127,9 @@ class UserServiceImplTest {
         userService.removeAdminRole(1L);
 
         assertFalse(testUser.getRoles().contains(adminRole));
+        assertThat(testUser.getTokenVersion()).isEqualTo(1);
         verify(userRepository, times(1)).save(testUser);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(1L, "testuser"));
     }
 
     @Test
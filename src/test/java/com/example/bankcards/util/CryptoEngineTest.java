@@ -0,0 +1,101 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CryptoProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CryptoEngineTest {
+
+    private static final String SECRET = "TestSecretKey123";
+    private static final String ROTATED_SECRET = "RotatedSecret456";
+
+    private final CryptoEngine cryptoEngine = new CryptoEngine(properties(null));
+
+    private static CryptoProperties properties(Integer activeKeyVersion) {
+        CryptoProperties properties = new CryptoProperties();
+        properties.setSecret(SECRET);
+        properties.setBlindIndexSecret("test-blind-index-secret");
+        if (activeKeyVersion != null) {
+            properties.setKeys(Map.of(2, ROTATED_SECRET));
+            properties.setActiveKeyVersion(activeKeyVersion);
+        }
+        return properties;
+    }
+
+    @Test
+    void encrypt_shouldRoundTripAndBeRandomized() {
+        String first = cryptoEngine.encrypt("1111222233334444");
+        String second = cryptoEngine.encrypt("1111222233334444");
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(cryptoEngine.decrypt(first)).isEqualTo("1111222233334444");
+        assertThat(cryptoEngine.decrypt(second)).isEqualTo("1111222233334444");
+    }
+
+    @Test
+    void decrypt_whenCiphertextIsTampered_shouldFail() {
+        String encrypted = cryptoEngine.encrypt("1111222233334444");
+        char last = encrypted.charAt(encrypted.length() - 3);
+        String tampered = encrypted.substring(0, encrypted.length() - 3)
+                + (last == 'A' ? 'B' : 'A')
+                + encrypted.substring(encrypted.length() - 2);
+
+        assertThatThrownBy(() -> cryptoEngine.decrypt(tampered))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void decrypt_whenValueWasWrittenWithLegacyEcb_shouldStillDecrypt() throws Exception {
+        Cipher ecb = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        ecb.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "AES"));
+        String legacy = Base64.getEncoder()
+                .encodeToString(ecb.doFinal("1111222233334444".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(cryptoEngine.decrypt(legacy)).isEqualTo("1111222233334444");
+    }
+
+    @Test
+    void encrypt_shouldPrefixCiphertextWithActiveKeyVersion() {
+        CryptoEngine rotated = new CryptoEngine(properties(2));
+
+        assertThat(cryptoEngine.encrypt("1111222233334444")).startsWith("v1:");
+        assertThat(rotated.encrypt("1111222233334444")).startsWith("v2:");
+    }
+
+    @Test
+    void decrypt_afterRotation_shouldReadEveryConfiguredKeyVersion() {
+        CryptoEngine rotated = new CryptoEngine(properties(2));
+        String oldCiphertext = cryptoEngine.encrypt("1111222233334444");
+        String newCiphertext = rotated.encrypt("1111222233334444");
+
+        assertThat(rotated.decrypt(oldCiphertext)).isEqualTo("1111222233334444");
+        assertThat(rotated.decrypt(newCiphertext)).isEqualTo("1111222233334444");
+        assertThat(rotated.isEncryptedWithActiveKey(oldCiphertext)).isFalse();
+        assertThat(rotated.isEncryptedWithActiveKey(newCiphertext)).isTrue();
+    }
+
+    @Test
+    void decrypt_whenKeyVersionIsNotConfigured_shouldFail() {
+        String newCiphertext = new CryptoEngine(properties(2)).encrypt("1111222233334444");
+
+        assertThatThrownBy(() -> cryptoEngine.decrypt(newCiphertext))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void blindIndex_shouldBeDeterministicPerValue() {
+        assertThat(cryptoEngine.blindIndex("1111222233334444"))
+                .isEqualTo(cryptoEngine.blindIndex("1111222233334444"))
+                .hasSize(64);
+        assertThat(cryptoEngine.blindIndex("1111222233334444"))
+                .isNotEqualTo(cryptoEngine.blindIndex("1111222233334445"));
+    }
+}